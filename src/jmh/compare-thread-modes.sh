@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+#
+# Compara el modo de hilos de plataforma (por defecto) con el modo de hilos virtuales (perfil virtual-threads).
+# Arranca la aplicación en cada modo contra la BBDD configurada, lanza ThreadModeLoadTest y muestra
+# el rendimiento y la latencia p99 de cada uno. Con hilos virtuales los hilos fijados se registran en el log
+# de la aplicación (target/load-virtual-threads.log) y en la métrica jvm.threads.virtual.pinned.
+#
+# Uso: src/jmh/compare-thread-modes.sh
+# Variables: CONCURRENCY (200), DURATION (60), WARMUP (15), PORT (8080), LOGIN_USER / LOGIN_PASSWORD (sin login si no se indican)
+#
+set -euo pipefail
+cd "$(dirname "$0")/../.."
+
+CONCURRENCY=${CONCURRENCY:-200}
+DURATION=${DURATION:-60}
+WARMUP=${WARMUP:-15}
+PORT=${PORT:-8080}
+BASE_URL="http://localhost:${PORT}"
+
+./mvnw -q -Pbenchmark -DskipTests package
+JAR=$(ls target/users-backend-*.jar | grep -v '\.original$' | head -1)
+
+results=()
+for mode in platform virtual-threads; do
+    profile=$([ "$mode" = platform ] && echo default || echo "$mode")
+    java -jar "$JAR" --server.port="$PORT" --spring.profiles.active="$profile" \
+        --logging.level.org.springframework.security=INFO --spring.jpa.show-sql=false > "target/load-${mode}.log" 2>&1 &
+    app=$!
+    trap 'kill $app 2>/dev/null || true' EXIT
+
+    until curl -sf "${BASE_URL}/actuator/health" > /dev/null; do
+        kill -0 "$app" 2>/dev/null || { echo "La aplicación no ha arrancado, ver target/load-${mode}.log"; exit 1; }
+        sleep 1
+    done
+
+    results+=("$(java -cp target/test-classes com.springboot.backend.ruslan.usersapp.users_backend.benchmarks.ThreadModeLoadTest \
+        "$BASE_URL" "$CONCURRENCY" "$DURATION" "$WARMUP" "$mode" ${LOGIN_USER:-} ${LOGIN_PASSWORD:-})")
+
+    kill "$app"
+    wait "$app" 2>/dev/null || true
+    trap - EXIT
+done
+
+printf '%s\n' "${results[@]}"
+grep -h "Hilo virtual fijado" target/load-virtual-threads.log || echo "Sin hilos virtuales fijados por encima del umbral"
@@ -0,0 +1,188 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.SpringSecurityConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCache;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCodec;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Benchmark de la cadena de filtros de seguridad real (FilterChainProxy construido por SpringSecurityConfig)
+ * ejecutada sobre peticiones simuladas (MockHttpServletRequest): login completo en POST /login y petición
+ * autenticada con Bearer a una ruta con roles, con la caché de tokens caliente y sin caché.
+ * Cada variante levanta un contexto web mínimo con SpringSecurityConfig; el AuthenticationProvider es un stub
+ * que no consulta la base de datos ni calcula BCrypt, para medir solo el coste de la cadena.
+ * Cada operación incluye la creación de la petición simulada.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityFilterChainBenchmark {
+
+    private static final byte[] LOGIN_BODY = "{\"username\":\"admin\",\"password\":\"12345\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final String PROTECTED_PATH = "/api/customers/1/invoices";
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    //La misma clave en los dos contextos, para que el token valga en ambos
+    private static final JwtKeyRing KEY_RING = JwtKeyRing.ephemeral();
+
+    private static final HttpServlet OK_SERVLET = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            resp.setStatus(200);
+        }
+    };
+
+    private AnnotationConfigWebApplicationContext cachedContext;
+
+    private AnnotationConfigWebApplicationContext uncachedContext;
+
+    private FilterChainProxy cachedChain;
+
+    private FilterChainProxy uncachedChain;
+
+    private String bearer;
+
+    @Configuration
+    @EnableWebMvc
+    @EnableWebSecurity
+    static class BenchmarkSecurityConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JwtKeyRing jwtKeyRing() {
+            return KEY_RING;
+        }
+
+        @Bean
+        AuthenticationProvider authenticationProvider() {
+            return new AuthenticationProvider() {
+                @Override
+                public Authentication authenticate(Authentication authentication) {
+                    return UsernamePasswordAuthenticationToken.authenticated(
+                            new User(authentication.getName(), "", AUTHORITIES), null, AUTHORITIES);
+                }
+
+                @Override
+                public boolean supports(Class<?> authentication) {
+                    return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+                }
+            };
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        cachedContext = context(10000);
+        uncachedContext = context(0);
+        cachedChain = cachedContext.getBean(FilterChainProxy.class);
+        uncachedChain = uncachedContext.getBean(FilterChainProxy.class);
+        bearer = "Bearer " + TokenJWTCodec.createToken(KEY_RING, "admin", AUTHORITIES);
+
+        //Se comprueba que se mide lo que se dice: un login correcto y una petición autorizada
+        int loginStatus = login().getStatus();
+        int requestStatus = authenticatedRequestCached().getStatus();
+        if (loginStatus != 200 || requestStatus != 200) {
+            throw new IllegalStateException("La cadena de seguridad responde " + loginStatus + " al login y "
+                    + requestStatus + " a " + PROTECTED_PATH);
+        }
+    }
+
+    private static AnnotationConfigWebApplicationContext context(long cacheSize) {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "app.security.password.strength", "4",
+                "app.security.jwt.cache.maximum-size", String.valueOf(cacheSize))));
+        context.register(BenchmarkSecurityConfig.class, TokenJWTCache.class, SpringSecurityConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    @TearDown
+    public void tearDown() {
+        cachedContext.close();
+        uncachedContext.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse login() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login"); //Los matchers de ruta de los filtros comparan el servletPath, no la URI
+        request.setContentType("application/json");
+        request.setContent(LOGIN_BODY);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cachedChain.doFilter(request, response, new MockFilterChain(OK_SERVLET));
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticatedRequestCached() throws Exception {
+        return authenticatedRequest(cachedChain);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticatedRequestUncached() throws Exception {
+        return authenticatedRequest(uncachedChain);
+    }
+
+    private MockHttpServletResponse authenticatedRequest(FilterChainProxy chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", PROTECTED_PATH);
+        request.setServletPath(PROTECTED_PATH);
+        request.addHeader("Authorization", bearer);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(request, response, new MockFilterChain(OK_SERVLET));
+        return response;
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springboot.backend.ruslan.usersapp.users_backend.config.JacksonFormatsConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Role;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+
+/**
+ * Benchmarks de serialización de los listados de usuarios, clientes y productos en JSON, CBOR y Smile:
+ * tiempo de generar el cuerpo de la respuesta (µs por listado). El tamaño del cuerpo de cada combinación,
+ * sin comprimir y con gzip, se imprime al preparar el benchmark.
+ *
+ * Los ObjectMapper se crean igual que en la aplicación (JacksonFormatsConfig) a partir de un Jackson2ObjectMapperBuilder
+ * con las fechas como texto, que es lo que configura Spring Boot por defecto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"user", "customer", "product"})
+    private String entity;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1000"})
+    private int size;
+
+    private ObjectMapper mapper;
+
+    private List<?> list;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = switch (format) {
+            case "json" -> builder().build();
+            case "cbor" -> JacksonFormatsConfig.cborMapper(builder());
+            case "smile" -> JacksonFormatsConfig.smileMapper(builder());
+            default -> throw new IllegalArgumentException(format);
+        };
+        list = switch (entity) {
+            case "user" -> users(size);
+            case "customer" -> customers(size);
+            case "product" -> products(size);
+            default -> throw new IllegalArgumentException(entity);
+        };
+
+        byte[] body = mapper.writeValueAsBytes(list);
+        System.out.printf(Locale.ROOT, "%n%s %s (%d): %d bytes, %d bytes con gzip%n",
+                entity, format, size, body.length, gzip(body).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(list);
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static List<User> users(int size) {
+        List<Role> roles = List.of(new Role("ROLE_USER"));
+        List<User> users = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setName("Nombre" + i);
+            user.setLastname("Apellido" + i);
+            user.setBirthday("1990-01-01");
+            user.setGender("M");
+            user.setCountry("España");
+            user.setMunicipality("Madrid");
+            user.setProvince("Madrid");
+            user.setPhone(600000000 + i);
+            user.setEmail("usuario" + i + "@correo.com");
+            user.setUsername("usuario" + i);
+            user.setUpdatedAt(Instant.now());
+            user.setRoles(roles);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static List<Customer> customers(int size) {
+        List<Customer> customers = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Customer customer = new Customer();
+            customer.setId((long) i);
+            customer.setName("Nombre" + i);
+            customer.setLastName("Apellido" + i);
+            customer.setEmail("cliente" + i + "@correo.com");
+            customer.setPhone("91" + (1000000 + i));
+            customer.setAddress("Calle Mayor " + i);
+            customer.setCity("Madrid");
+            customer.setProvince("Madrid");
+            customer.setPostalCode(28000 + i % 100);
+            customer.setCountry("España");
+            customer.setInvoices(List.of());
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    private static List<Product> products(int size) {
+        Date created = new Date();
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Producto " + i);
+            product.setDescription("Descripción del producto " + i);
+            product.setPrice(10.0 + i % 500);
+            product.setDateCreate(created);
+            products.add(product);
+        }
+        return products;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de bucle cerrado contra una instancia de la aplicación ya arrancada.
+ *
+ * Cada cliente (un hilo virtual) repite peticiones de la mezcla sin pausa hasta que acaba el tiempo:
+ * login (BCrypt), listados paginados de usuarios (BBDD), búsqueda de clientes y catálogo de productos.
+ * Al final se imprime una línea con el rendimiento (peticiones por segundo) y los percentiles de latencia.
+ * La usa compare-thread-modes.sh para comparar el modo de hilos de plataforma con el de hilos virtuales.
+ *
+ * Argumentos: baseUrl concurrencia duraciónSegundos calentamientoSegundos etiqueta [usuario contraseña]
+ */
+public class ThreadModeLoadTest {
+
+    private static final String[] READS = {
+        "/api/users?limit=20",
+        "/api/users?limit=100",
+        "/api/customers/search?q=gar",
+        "/api/products"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 60);
+        Duration warmup = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 15);
+        String label = args.length > 4 ? args[4] : "run";
+        String login = args.length > 6
+                ? "{\"username\":\"" + args[5] + "\",\"password\":\"" + args[6] + "\"}"
+                : null;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        run(client, baseUrl, login, concurrency, warmup);
+        Result result = run(client, baseUrl, login, concurrency, duration);
+        System.out.println(result.format(label, concurrency));
+    }
+
+    private static Result run(HttpClient client, String baseUrl, String login, int concurrency, Duration duration)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = nextRequest(baseUrl, login);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(samples, count);
+                }));
+            }
+            for (Future<long[]> future : futures) {
+                try {
+                    latencies.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get(), duration);
+    }
+
+    /**
+     * Mezcla de peticiones: 10% login si hay credenciales y el resto lecturas repartidas por igual.
+     */
+    private static HttpRequest nextRequest(String baseUrl, String login) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (login != null && random.nextInt(10) == 0) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(login))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + READS[random.nextInt(READS.length)])).GET().build();
+    }
+
+    private record Result(long[] latencies, long errors, Duration duration) {
+
+        String format(String label, int concurrency) {
+            double seconds = duration.toMillis() / 1000.0;
+            return String.format(Locale.ROOT, "%-16s clientes=%d peticiones=%d errores=%d rendimiento=%.1f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms",
+                    label, concurrency, latencies.length, errors, latencies.length / seconds,
+                    percentile(0.50), percentile(0.99), percentile(1.0));
+        }
+
+        private double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+}
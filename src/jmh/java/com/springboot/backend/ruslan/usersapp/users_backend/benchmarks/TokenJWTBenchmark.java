@@ -0,0 +1,83 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.benchmarks;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCodec;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Benchmarks de emisión y lectura de tokens JWT:
+ * emisión del token en el login, verificación de la firma y lectura de los roles
+ * tanto con el claim "roles" como con el claim antiguo "authorities".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenJWTBenchmark {
+
+    private JwtKeyRing keyRing;
+
+    private List<GrantedAuthority> authorities;
+
+    private String token;
+
+    private Claims claims;
+
+    private Claims legacyClaims;
+
+    @Setup
+    public void setup() {
+        authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+        keyRing = JwtKeyRing.ephemeral();
+        token = TokenJWTCodec.createToken(keyRing, "admin", authorities);
+        claims = TokenJWTCodec.parse(keyRing, token);
+        legacyClaims = Jwts.claims()
+                .subject("admin")
+                .add(TokenJWTCodec.CLAIM_LEGACY_AUTHORITIES, "[{\"authority\":\"ROLE_USER\"},{\"authority\":\"ROLE_ADMIN\"}]")
+                .expiration(new Date(System.currentTimeMillis() + TokenJWTCodec.EXPIRATION_MILLIS))
+                .build();
+    }
+
+    @Benchmark
+    public String issueToken() {
+        return TokenJWTCodec.createToken(keyRing, "admin", authorities);
+    }
+
+    @Benchmark
+    public Claims validateToken() {
+        return TokenJWTCodec.parse(keyRing, token);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> decodeAuthorities() throws IOException {
+        return TokenJWTCodec.authorities(claims);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> decodeLegacyAuthorities() throws IOException {
+        return TokenJWTCodec.authorities(legacyClaims);
+    }
+
+}
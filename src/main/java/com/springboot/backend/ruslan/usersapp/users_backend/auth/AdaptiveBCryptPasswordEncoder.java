@@ -0,0 +1,189 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * PasswordEncoder BCrypt con factor de coste adaptativo.
+ *
+ * Al arrancar se mide cuánto tarda un hash y se elige el mayor coste (strength) que cumple el tiempo objetivo
+ * configurado, sin bajar nunca del coste mínimo. El coste queda grabado en cada hash ($2a$NN$...), así que
+ * upgradeEncoding() detecta los hashes con un coste menor que el actual y Spring Security los vuelve a calcular
+ * en el siguiente login correcto a través de UserDetailsPasswordService (ver JPAUserDetailsService).
+ *
+ * Los hashes con un coste mayor no se rebajan: en un clúster cada nodo calibra su propio coste y, si se rebajaran,
+ * dos nodos con costes distintos recalcularían el hash del mismo usuario en cada login. Para que todos los nodos
+ * usen el mismo coste se fija app.security.password.strength y no se calibra.
+ *
+ * Los hashes se calculan en un pool de hilos acotado con una cola acotada. El hilo que pide el hash espera el resultado,
+ * así que como mucho pool-size + queue-capacity hilos de peticiones están esperando a BCrypt; para que una ráfaga
+ * de logins no ocupe todos los hilos de Tomcat la cola tiene que ser bastante menor que server.tomcat.threads.max
+ * (ver SpringSecurityConfig). Si la cola está llena la operación se rechaza al momento con PasswordEncoderBusyException,
+ * que el login convierte en un 503.
+ * El tiempo de cada hash se publica como security.password.hash (operation=encode|matches) y las operaciones
+ * en espera como security.password.queue.
+ */
+public class AdaptiveBCryptPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveBCryptPasswordEncoder.class);
+
+    private static final Pattern BCRYPT_STRENGTH = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    private final int strength;
+
+    private final BCryptPasswordEncoder encoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer;
+
+    private final Timer matchesTimer;
+
+    public AdaptiveBCryptPasswordEncoder(int strength, int poolSize, int queueCapacity, MeterRegistry registry) {
+        this.strength = strength;
+        this.encoder = new BCryptPasswordEncoder(strength);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.encodeTimer = hashTimer("encode", registry);
+        this.matchesTimer = hashTimer("matches", registry);
+        Gauge.builder("security.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Operaciones de BCrypt esperando un hilo del pool")
+                .register(registry);
+    }
+
+    private static Timer hashTimer(String operation, MeterRegistry registry) {
+        return Timer.builder("security.password.hash")
+                .description("Tiempo de cálculo de un hash BCrypt (sin la espera en la cola)")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    /**
+     * Calcula el coste de BCrypt para que un hash tarde como mucho targetMillis en esta máquina.
+     * Se mide el coste mínimo y se extrapola sabiendo que cada punto de coste duplica el tiempo.
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration"); //Calentamiento de la JVM
+
+        long[] samples = new long[CALIBRATION_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double millis = samples[samples.length / 2] / 1_000_000.0;
+
+        int strength = minStrength;
+        while (strength < maxStrength && millis * 2 <= targetMillis) {
+            millis *= 2;
+            strength++;
+        }
+        log.info("Coste de BCrypt calibrado: {} (~{} ms por hash, objetivo {} ms)", strength, Math.round(millis), targetMillis);
+        return strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(() -> encodeTimer.record(() -> encoder.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(() -> matchesTimer.record(() -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Un hash debe recalcularse solo si su coste es menor que el coste actual; nunca se rebaja (ver la cabecera).
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_STRENGTH.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) < strength;
+    }
+
+    /**
+     * Calcula el hash en el pool sin bloquear al hilo que lo pide; sirve para cifrar varias contraseñas en paralelo.
+     * Si la cola del pool está llena, se devuelve un future fallido con el mismo error que encode().
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> encodeTimer.record(() -> encoder.encode(rawPassword)), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(rejected(e));
+        }
+    }
+
+    /**
+     * Número de hilos del pool: cuántos hashes se calculan a la vez.
+     */
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    private <T> T await(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw rejected(e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cifrado de contraseña interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static PasswordEncoderBusyException rejected(RejectedExecutionException e) {
+        return new PasswordEncoderBusyException("Demasiadas operaciones de cifrado de contraseñas en espera", e);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.SecretKey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Claves HMAC con las que se firman y verifican los tokens JWT, identificadas cada una por su kid.
+ *
+ * Las claves se aprovisionan fuera de la aplicación, así que todas las instancias que leen las mismas claves
+ * aceptan los tokens emitidos por cualquiera de ellas, también después de un reinicio. Pueden venir de:
+ * - app.security.jwt.keys-file: fichero de propiedades con una línea kid=clave en Base64 por clave.
+ * - app.security.jwt.keystore: almacén de claves (PKCS12 por defecto) con una entrada de clave secreta por kid (el alias).
+ * Si se configuran los dos se usan las claves de ambos. Una clave de menos de 256 bits impide arrancar.
+ *
+ * Cada token lleva en la cabecera el kid de la clave que lo firmó y se verifica solo con esa clave.
+ * Los ficheros se vuelven a leer cada app.security.jwt.reload-interval, lo que permite rotar las claves sin reiniciar:
+ * 1. Se añade la clave nueva en todas las instancias. Se acepta en cuanto se lee, pero no se usa para firmar hasta
+ *    pasado app.security.jwt.activation-delay, para que todas las instancias la conozcan antes de ver un token firmado con ella.
+ * 2. Cuando la clave antigua deja de firmar, se retira después de la duración de los tokens (1 hora).
+ * Firma la clave app.security.jwt.signing-kid si se indica; si no, la activa con el kid mayor (conviene usar kids ordenables, como fechas).
+ *
+ * Si no se configura ninguna fuente se genera una clave aleatoria, como antes: sirve para desarrollo,
+ * pero los tokens solo valen en esta instancia y hasta que se reinicie.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final Path keysFile;
+
+    private final Path keystore;
+
+    private final char[] keystorePassword;
+
+    private final String keystoreType;
+
+    private final String signingKid;
+
+    private final Duration activationDelay;
+
+    private final TokenJWTCache tokenCache;
+
+    private final JwtParser parser;
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile Ring ring;
+
+    public JwtKeyRing(@Value("${app.security.jwt.keys-file:}") String keysFile,
+            @Value("${app.security.jwt.keystore:}") String keystore,
+            @Value("${app.security.jwt.keystore-password:}") String keystorePassword,
+            @Value("${app.security.jwt.keystore-type:PKCS12}") String keystoreType,
+            @Value("${app.security.jwt.signing-kid:}") String signingKid,
+            @Value("${app.security.jwt.activation-delay:PT2M}") Duration activationDelay,
+            TokenJWTCache tokenCache) {
+        this.keysFile = keysFile.isBlank() ? null : Path.of(keysFile);
+        this.keystore = keystore.isBlank() ? null : Path.of(keystore);
+        this.keystorePassword = keystorePassword.toCharArray();
+        this.keystoreType = keystoreType;
+        this.signingKid = signingKid.isBlank() ? null : signingKid;
+        this.activationDelay = activationDelay;
+        this.tokenCache = tokenCache;
+        //El parser es inmutable: busca la clave de cada token en el anillo vigente en el momento de verificarlo
+        this.parser = Jwts.parser().keyLocator(this::locate).build();
+
+        if (isProvisioned()) {
+            //Las claves presentes al arrancar se pueden usar para firmar desde el primer momento
+            NavigableMap<String, SecretKey> keys = load();
+            Map<String, Instant> activeFrom = new HashMap<>();
+            keys.keySet().forEach(kid -> activeFrom.put(kid, Instant.EPOCH));
+            this.ring = new Ring(keys, activeFrom);
+            log.info("Claves JWT cargadas: {}", keys.keySet());
+        } else {
+            String kid = "ephemeral-" + UUID.randomUUID();
+            this.ring = new Ring(new TreeMap<>(Map.of(kid, Jwts.SIG.HS256.key().build())), Map.of(kid, Instant.EPOCH));
+            log.warn("No se ha configurado app.security.jwt.keys-file ni app.security.jwt.keystore: se usa una clave JWT aleatoria. "
+                    + "Los tokens solo serán válidos en esta instancia y hasta que se reinicie");
+        }
+    }
+
+    /**
+     * Anillo con una única clave aleatoria, para usar fuera de Spring (benchmarks).
+     */
+    public static JwtKeyRing ephemeral() {
+        return new JwtKeyRing("", "", "", "PKCS12", "", Duration.ZERO, null);
+    }
+
+    /**
+     * Parser que verifica la firma de un token con la clave de su kid. Un kid desconocido o ausente se rechaza
+     * con una io.jsonwebtoken.JwtException, igual que una firma incorrecta.
+     */
+    public JwtParser parser() {
+        return parser;
+    }
+
+    /**
+     * Clave con la que se firman los tokens nuevos.
+     */
+    public SigningKey signingKey() {
+        Ring current = ring;
+        if (signingKid != null && current.keys().containsKey(signingKid)) {
+            return new SigningKey(signingKid, current.keys().get(signingKid));
+        }
+        Instant now = Instant.now();
+        String selected = null;
+        for (String kid : current.keys().keySet()) {
+            if (!current.activeFrom().get(kid).isAfter(now)) {
+                selected = kid; //Las claves están ordenadas por kid: se queda con la mayor ya activa
+            }
+        }
+        if (selected == null) {
+            selected = current.keys().firstKey();
+        }
+        return new SigningKey(selected, current.keys().get(selected));
+    }
+
+    /**
+     * Vuelve a leer las claves. Si la lectura falla se registra el error y se siguen usando las claves anteriores.
+     * Si se ha retirado o cambiado alguna clave se vacía la caché de tokens validados, para que los tokens
+     * firmados con ella dejen de aceptarse en cuanto se detecta el cambio.
+     */
+    @Scheduled(fixedDelayString = "${app.security.jwt.reload-interval:PT1M}",
+            initialDelayString = "${app.security.jwt.reload-interval:PT1M}")
+    public void reload() {
+        if (!isProvisioned()) {
+            return;
+        }
+        reloadLock.lock();
+        try {
+            NavigableMap<String, SecretKey> keys;
+            try {
+                keys = load();
+            } catch (IllegalStateException e) {
+                log.error("No se han podido recargar las claves JWT, se mantienen las anteriores: {}", e.getMessage());
+                return;
+            }
+
+            Ring current = ring;
+            Instant activation = Instant.now().plus(activationDelay);
+            Map<String, Instant> activeFrom = new HashMap<>();
+            boolean revoked = false;
+            for (Map.Entry<String, SecretKey> entry : keys.entrySet()) {
+                SecretKey previous = current.keys().get(entry.getKey());
+                if (previous == null) {
+                    activeFrom.put(entry.getKey(), activation);
+                    log.info("Nueva clave JWT {}: se usará para firmar a partir de {}", entry.getKey(), activation);
+                } else if (MessageDigest.isEqual(previous.getEncoded(), entry.getValue().getEncoded())) {
+                    activeFrom.put(entry.getKey(), current.activeFrom().get(entry.getKey()));
+                } else {
+                    activeFrom.put(entry.getKey(), activation);
+                    revoked = true;
+                    log.warn("La clave JWT {} ha cambiado: los tokens firmados con la anterior dejan de ser válidos", entry.getKey());
+                }
+            }
+            for (String kid : current.keys().keySet()) {
+                if (!keys.containsKey(kid)) {
+                    revoked = true;
+                    log.info("Clave JWT {} retirada", kid);
+                }
+            }
+
+            ring = new Ring(keys, activeFrom);
+            if (revoked && tokenCache != null) {
+                tokenCache.invalidateAll();
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private boolean isProvisioned() {
+        return keysFile != null || keystore != null;
+    }
+
+    private Key locate(Header header) {
+        String kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+        return kid == null ? null : ring.keys().get(kid);
+    }
+
+    /**
+     * Lee las claves de las fuentes configuradas, ordenadas por kid.
+     * @throws IllegalStateException si no se pueden leer, no hay ninguna o alguna es demasiado corta.
+     */
+    private NavigableMap<String, SecretKey> load() {
+        NavigableMap<String, SecretKey> keys = new TreeMap<>();
+        try {
+            if (keysFile != null) {
+                Properties properties = new Properties();
+                try (Reader reader = Files.newBufferedReader(keysFile, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+                for (String kid : properties.stringPropertyNames()) {
+                    keys.put(kid, Keys.hmacShaKeyFor(Decoders.BASE64.decode(properties.getProperty(kid).trim())));
+                }
+            }
+            if (keystore != null) {
+                KeyStore store = KeyStore.getInstance(keystoreType);
+                try (InputStream in = Files.newInputStream(keystore)) {
+                    store.load(in, keystorePassword);
+                }
+                for (String alias : Collections.list(store.aliases())) {
+                    if (store.getKey(alias, keystorePassword) instanceof SecretKey key) {
+                        //hmacShaKeyFor elige HmacSHA256/384/512 según la longitud y rechaza las claves débiles
+                        keys.put(alias, Keys.hmacShaKeyFor(key.getEncoded()));
+                    }
+                }
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            throw new IllegalStateException("No se han podido leer las claves JWT: " + e.getMessage(), e);
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("No se ha encontrado ninguna clave JWT en "
+                    + (keysFile != null ? keysFile : "") + (keystore != null ? " " + keystore : ""));
+        }
+        return keys;
+    }
+
+    /**
+     * Clave de firma con su kid, que se escribe en la cabecera del token.
+     */
+    public record SigningKey(String kid, SecretKey key) {
+    }
+
+    /**
+     * Claves vigentes (ordenadas por kid) e instante a partir del cual cada una puede firmar. Se sustituye entero al recargar.
+     */
+    private record Ring(NavigableMap<String, SecretKey> keys, Map<String, Instant> activeFrom) {
+    }
+
+}
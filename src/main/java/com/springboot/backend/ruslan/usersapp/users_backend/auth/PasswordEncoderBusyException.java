@@ -0,0 +1,13 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+/**
+ * La cola del pool de BCrypt (app.security.password.queue-capacity) está llena y la operación se rechaza sin esperar.
+ * En el login se responde 503 para que el cliente reintente más tarde.
+ */
+public class PasswordEncoderBusyException extends IllegalStateException {
+
+    public PasswordEncoderBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
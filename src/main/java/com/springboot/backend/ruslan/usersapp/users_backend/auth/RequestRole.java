@@ -0,0 +1,43 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Rol con el que se atiende una petición, para etiquetar las métricas (etiqueta role).
+ * Los filtros JWT lo guardan como atributo de la petición en cuanto conocen al usuario, porque el SecurityContext
+ * ya se ha limpiado cuando se registran las métricas al final de la petición.
+ * Valores: admin, user, none (autenticado sin roles conocidos) y anonymous.
+ */
+public final class RequestRole {
+
+    public static final String ATTRIBUTE = RequestRole.class.getName();
+
+    public static final String ANONYMOUS = "anonymous";
+
+    private RequestRole() {
+    }
+
+    public static void set(HttpServletRequest request, Collection<? extends GrantedAuthority> authorities) {
+        String role = "none";
+        for (GrantedAuthority authority : authorities) {
+            if ("ROLE_ADMIN".equals(authority.getAuthority())) {
+                role = "admin";
+                break;
+            }
+            if ("ROLE_USER".equals(authority.getAuthority())) {
+                role = "user";
+            }
+        }
+        request.setAttribute(ATTRIBUTE, role);
+    }
+
+    public static String get(HttpServletRequest request) {
+        Object role = request == null ? null : request.getAttribute(ATTRIBUTE);
+        return role == null ? ANONYMOUS : role.toString();
+    }
+
+}
@@ -3,6 +3,7 @@ package com.springboot.backend.ruslan.usersapp.users_backend.auth;
 import java.util.Arrays;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,8 +13,6 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -23,6 +22,9 @@ import org.springframework.web.filter.CorsFilter;
 import com.springboot.backend.ruslan.usersapp.users_backend.auth.filter.JWTAuthenticationFilter;
 import com.springboot.backend.ruslan.usersapp.users_backend.auth.filter.JWTValidationFilter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+
 
 @Configuration
 public class SpringSecurityConfig {
@@ -30,6 +32,15 @@ public class SpringSecurityConfig {
     @Autowired
     private AuthenticationConfiguration AuthenticationConfiguration;
 
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private TokenJWTCache tokenJWTCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * Este metodo nos permite poder obtener el componente AuthenticationManager que es un componente central en Spring Security
      * que se encarga de autenticar las credenciales del usuario.
@@ -47,12 +58,27 @@ public class SpringSecurityConfig {
 
     /**
      * Método que nos permite encriptar la contraseña de los usuarios.
-     * Creamos un objeto de la clase BCryptPasswordEncoder la devolvemos y con @Bean le decimos a Spring que lo gestione en el contenedor de beans.
-     * @return devuelve un objeto de la clase BCryptPasswordEncoder.
+     * Creamos un objeto de la clase AdaptiveBCryptPasswordEncoder la devolvemos y con @Bean le decimos a Spring que lo gestione en el contenedor de beans.
+     * Si no se fija un coste (strength), se calibra al arrancar para que cada hash tarde como mucho target-millis.
+     * Los hashes se calculan en un pool de pool-size hilos con una cola de queue-capacity operaciones. Sin queue-capacity
+     * la cola es la cuarta parte de server.tomcat.threads.max, para que los logins en espera no ocupen todos los hilos de peticiones.
+     * @return devuelve un objeto de la clase AdaptiveBCryptPasswordEncoder.
      */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(); // Se crea un objeto de la clase BCryptPasswordEncoder con la configuración por defecto.
+    AdaptiveBCryptPasswordEncoder passwordEncoder(
+            @Value("${app.security.password.strength:0}") int strength,
+            @Value("${app.security.password.target-millis:250}") long targetMillis,
+            @Value("${app.security.password.min-strength:10}") int minStrength,
+            @Value("${app.security.password.max-strength:16}") int maxStrength,
+            @Value("${app.security.password.pool-size:0}") int poolSize,
+            @Value("${app.security.password.queue-capacity:0}") int queueCapacity,
+            @Value("${server.tomcat.threads.max:200}") int requestThreads,
+            MeterRegistry meterRegistry) {
+
+        int cost = strength > 0 ? strength : AdaptiveBCryptPasswordEncoder.calibrate(targetMillis, minStrength, maxStrength);
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        int capacity = queueCapacity > 0 ? queueCapacity : Math.max(1, requestThreads / 4);
+        return new AdaptiveBCryptPasswordEncoder(cost, threads, capacity, meterRegistry);
     }
 
     /**
@@ -70,26 +96,38 @@ public class SpringSecurityConfig {
 
         return http.authorizeHttpRequests(authz ->
         authz
+        //Las respuestas en streaming (StreamingResponseBody) terminan en un dispatch ASYNC de la petición ya autorizada
+        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
         .requestMatchers(HttpMethod.GET, "/api/users", "/api/users/{users}").permitAll()
+        .requestMatchers(HttpMethod.GET, "/api/customers/export").hasRole("ADMIN")
         .requestMatchers(HttpMethod.GET, "/api/customers", "/api/customers/{customers}").permitAll()
         
         //.requestMatchers(HttpMethod.GET, "/api/customers/{lastname}").permitAll()
         .requestMatchers(HttpMethod.GET, "/api/products", "/api/products/{products}").permitAll()
         .requestMatchers(HttpMethod.POST, "/api/products").hasRole("ADMIN")
+        .requestMatchers(HttpMethod.PATCH, "/api/products/prices").hasRole("ADMIN")
         .requestMatchers(HttpMethod.POST, "/api/customers").hasRole("ADMIN")
         .requestMatchers(HttpMethod.GET, "/api/users/{id}").hasAnyRole("USER", "ADMIN")
+        .requestMatchers(HttpMethod.GET, "/api/customers/{id}/invoices", "/api/invoices/{id}").hasAnyRole("USER", "ADMIN")
         .requestMatchers(HttpMethod.POST, "/api/users").hasRole("ADMIN")
+        .requestMatchers(HttpMethod.POST, "/api/users/batch").hasRole("ADMIN")
         .requestMatchers(HttpMethod.PUT, "/api/users/{id}").hasRole("ADMIN")
         .requestMatchers(HttpMethod.DELETE, "/api/users/{id}").hasRole("ADMIN")
+        .requestMatchers(HttpMethod.GET, "/api/analytics/**").hasRole("ADMIN")
+        //Cada conexión abierta ocupa una conexión de Tomcat y un hueco de app.events.max-subscribers: solo usuarios identificados
+        .requestMatchers(HttpMethod.GET, "/api/events").hasAnyRole("USER", "ADMIN")
         //Permitir acceso a la docuiemntación de springdoc-openapi
         .requestMatchers("/v3/api-docs/**").permitAll()
         .requestMatchers("/swagger-ui/**").permitAll()
         .requestMatchers("/swagger-ui.html").permitAll()
+        //Acceso a actuator: health es público y el resto de endpoints (métricas) solo para administradores
+        .requestMatchers("/actuator/health").permitAll()
+        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
         .anyRequest().authenticated())
         .cors(cors -> cors.configurationSource(configurationSource()))
-        .addFilter(new JWTAuthenticationFilter(authenticationManager())) // Se añade el filtro de autenticación JWT
-        .addFilter(new JWTValidationFilter(authenticationManager())) // Se añade el filtro de validación del token JWT
+        .addFilter(new JWTAuthenticationFilter(authenticationManager(), jwtKeyRing)) // Se añade el filtro de autenticación JWT
+        .addFilter(new JWTValidationFilter(authenticationManager(), jwtKeyRing, tokenJWTCache, meterRegistry)) // Se añade el filtro de validación del token JWT
         .csrf(config -> config.disable())
         .sessionManagement(management -> management.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .build();
@@ -110,7 +148,7 @@ public class SpringSecurityConfig {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOriginPatterns(Arrays.asList("*")); //Se permite que podamos establecer en el controlador el acceso desde cualquier origen.
         config.setAllowedOrigins(Arrays.asList("http://localhost:4200")); //Se permite el acceso desde solo desde el origen http://localhost:4200.
-        config.setAllowedMethods(Arrays.asList("POST", "GET", "PUT", "DELETE"));
+        config.setAllowedMethods(Arrays.asList("POST", "GET", "PUT", "PATCH", "DELETE"));
         config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type")); 
         config.setAllowCredentials(null); //No se permite el envío de credenciales como cookies o autenticación HTTP básica.
 
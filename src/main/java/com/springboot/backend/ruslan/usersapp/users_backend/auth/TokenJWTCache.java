@@ -0,0 +1,115 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caché de tokens JWT ya validados.
+ * La clave es el resumen SHA-256 del token (nunca se guarda el token en claro) y el valor es el nombre de usuario
+ * y los roles ya leídos, de modo que las peticiones que repiten un token no vuelven a verificar la firma HMAC
+ * ni a leer los claims. Solo se guardan datos inmutables: cada petición construye su propio Authentication,
+ * que es mutable (setAuthenticated, setDetails, eraseCredentials) y no debe compartirse entre peticiones.
+ * Cada entrada caduca, como muy tarde, en el instante de expiración (exp) del propio token.
+ * La caché está acotada en tamaño y sus aciertos y fallos se publican en actuator como cache.* con cache=jwt.tokens.
+ */
+@Component
+public class TokenJWTCache {
+
+    private final Cache<String, Entry> cache;
+
+    public TokenJWTCache(@Value("${app.security.jwt.cache.maximum-size:10000}") long maximumSize, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expiresAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "jwt.tokens");
+    }
+
+    /**
+     * Devuelve el usuario y los roles del token si ya fue validado y no ha caducado, o null en caso contrario.
+     */
+    public ValidatedToken get(String token) {
+        Entry entry = cache.getIfPresent(digest(token));
+        if (entry == null || entry.expiresAt() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.validated();
+    }
+
+    /**
+     * Guarda el usuario y los roles de un token recién validado hasta su fecha de expiración.
+     * Los tokens sin fecha de expiración no se guardan.
+     */
+    public void put(String token, Date expiration, ValidatedToken validated) {
+        if (expiration != null) {
+            cache.put(digest(token), new Entry(validated, expiration.getTime()));
+        }
+    }
+
+    /**
+     * Descarta todos los tokens validados. Se usa cuando se retira una clave de firma.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en la JVM", e);
+        }
+    }
+
+    /**
+     * Usuario y roles de un token válido. Los roles se copian en una lista inmutable.
+     */
+    public record ValidatedToken(String username, List<GrantedAuthority> authorities) {
+
+        public ValidatedToken {
+            authorities = List.copyOf(authorities);
+        }
+
+        public ValidatedToken(String username, Collection<? extends GrantedAuthority> authorities) {
+            this(username, List.<GrantedAuthority>copyOf(authorities));
+        }
+    }
+
+    private record Entry(ValidatedToken validated, long expiresAt) {
+    }
+
+}
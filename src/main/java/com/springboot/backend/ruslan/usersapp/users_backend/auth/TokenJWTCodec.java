@@ -0,0 +1,140 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.LoginRequest;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * TokenJWTCodec reúne todo lo necesario para emitir y leer los tokens JWT de la aplicación.
+ * Los lectores y escritores de JSON son inmutables y seguros entre hilos,
+ * por eso se construyen una sola vez y los comparten los dos filtros.
+ * Las claves de firma y el parser de JWT los proporciona JwtKeyRing.
+ *
+ * Los roles viajan en el claim "roles" como un array nativo de JWT (["ROLE_USER", "ROLE_ADMIN"]).
+ * Los tokens emitidos antes de este formato guardaban los roles en el claim "authorities" como un String
+ * con JSON anidado; se siguen aceptando mientras no caduquen.
+ */
+public final class TokenJWTCodec {
+
+    public static final String CLAIM_ROLES = "roles";
+
+    public static final String CLAIM_LEGACY_AUTHORITIES = "authorities";
+
+    public static final long EXPIRATION_MILLIS = 3600000; //1 hora expiración del token.
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final ObjectReader CREDENTIALS_READER = MAPPER.readerFor(LoginRequest.class);
+
+    private static final ObjectWriter BODY_WRITER = MAPPER.writerFor(Map.class);
+
+    private static final ObjectReader LEGACY_AUTHORITIES_READER = MAPPER.copy()
+            .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class)
+            .readerFor(SimpleGrantedAuthority[].class);
+
+    /**
+     * Los roles son pocos y se repiten en todos los tokens, así que se reutiliza una única instancia por rol.
+     */
+    private static final Map<String, GrantedAuthority> AUTHORITIES = new ConcurrentHashMap<>();
+
+    private TokenJWTCodec() {
+    }
+
+    /**
+     * Lee las credenciales (username y password) del cuerpo de la petición de login.
+     */
+    public static LoginRequest readCredentials(InputStream body) throws IOException {
+        return CREDENTIALS_READER.readValue(body);
+    }
+
+    /**
+     * Escribe un Map como JSON directamente en la respuesta, sin crear un String intermedio.
+     */
+    public static void writeBody(Writer writer, Map<String, ?> body) throws IOException {
+        BODY_WRITER.writeValue(writer, body);
+    }
+
+    /**
+     * Genera el token firmado con el nombre de usuario, los roles como array nativo y si el usuario es administrador.
+     * El kid de la clave de firma va en la cabecera para que cualquier instancia sepa con qué clave verificarlo.
+     */
+    public static String createToken(JwtKeyRing keys, String username, Collection<? extends GrantedAuthority> authorities) {
+        List<String> roles = new ArrayList<>(authorities.size());
+        boolean isAdmin = false;
+        for (GrantedAuthority authority : authorities) {
+            roles.add(authority.getAuthority());
+            isAdmin |= "ROLE_ADMIN".equals(authority.getAuthority());
+        }
+
+        JwtKeyRing.SigningKey signingKey = keys.signingKey();
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .subject(username)
+                .claim(CLAIM_ROLES, roles)
+                .claim("username", username)
+                .claim("isAdmin", isAdmin)
+                .signWith(signingKey.key()) //Firma el token con la clave secreta vigente.
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + EXPIRATION_MILLIS))
+                .compact();
+    }
+
+    /**
+     * Verifica la firma (con la clave del kid del token) y la expiración del token y devuelve sus claims.
+     * @throws io.jsonwebtoken.JwtException si el token no es válido o su kid no es una de las claves vigentes.
+     */
+    public static Claims parse(JwtKeyRing keys, String token) {
+        return keys.parser().parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Obtiene los roles del token: primero del claim "roles" y, si no existe, del claim antiguo "authorities".
+     */
+    public static List<GrantedAuthority> authorities(Claims claims) throws IOException {
+        Object roles = claims.get(CLAIM_ROLES);
+        if (roles instanceof Collection<?> names) {
+            List<GrantedAuthority> authorities = new ArrayList<>(names.size());
+            for (Object name : names) {
+                authorities.add(authority(name.toString()));
+            }
+            return authorities;
+        }
+
+        Object legacy = claims.get(CLAIM_LEGACY_AUTHORITIES);
+        if (legacy == null) {
+            return List.of();
+        }
+        SimpleGrantedAuthority[] authorities = LEGACY_AUTHORITIES_READER
+                .readValue(legacy.toString().getBytes(StandardCharsets.UTF_8));
+        return Arrays.asList(authorities);
+    }
+
+    private static GrantedAuthority authority(String role) {
+        return AUTHORITIES.computeIfAbsent(role, SimpleGrantedAuthority::new);
+    }
+
+}
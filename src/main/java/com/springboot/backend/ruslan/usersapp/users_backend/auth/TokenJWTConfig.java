@@ -1,9 +1,5 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.auth;
 
-import javax.crypto.SecretKey;
-
-import io.jsonwebtoken.Jwts;
-
 public class TokenJWTConfig {
 
     public static final String CONTENT_TYPE = "application/json";
@@ -11,8 +7,6 @@ public class TokenJWTConfig {
     public static final String PREFIX_TOKEN = "Bearer ";
 
     public static final String HEADER_AUTHORIZATION = "Authorization";
-    
-    public static final SecretKey SECRET_KEY = Jwts.SIG.HS256.key().build();
 
 
 
@@ -1,25 +1,22 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.auth.filter;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
-import com.fasterxml.jackson.core.exc.StreamReadException;
-import com.fasterxml.jackson.databind.DatabindException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.PasswordEncoderBusyException;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.RequestRole;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCodec;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.LoginRequest;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,9 +27,12 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
 
     private AuthenticationManager authenticationManager;
 
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager) {
+    private final JwtKeyRing keyRing;
+
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, JwtKeyRing keyRing) {
       
         this.authenticationManager = authenticationManager;
+        this.keyRing = keyRing;
     }
 
     @Override
@@ -45,20 +45,13 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
 
         try {
             /**
-             * Se crea un objeto User a partir de los datos del usuario que se envían en la petición.
-             * El método readValue de ObjectMapper se utiliza para deserializar (convertir) datos JSON en un objeto Java.
+             * Se leen del cuerpo de la petición solo las credenciales (LoginRequest) en lugar de la entidad User completa.
              * request.getInputStream() proporciona el flujo de entrada que contiene los datos JSON.
-             * User.class es la clase de destino a la que se desea convertir los datos JSON.
+             * El lector de JSON es compartido (TokenJWTCodec) y no se crea un ObjectMapper nuevo en cada login.
              */
-            User user = new ObjectMapper().readValue(request.getInputStream(), User.class);
-            username = user.getUsername();
-            password = user.getPassword();
-        } catch (StreamReadException e) {
-         
-            e.printStackTrace();
-        } catch (DatabindException e) {
-           
-            e.printStackTrace();
+            LoginRequest credentials = TokenJWTCodec.readCredentials(request.getInputStream());
+            username = credentials.username();
+            password = credentials.password();
         } catch (IOException e) {
             
             e.printStackTrace();
@@ -67,7 +60,12 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(username, password);
 
        
-        return this.authenticationManager.authenticate(authenticationToken);
+        try {
+            return this.authenticationManager.authenticate(authenticationToken);
+        } catch (PasswordEncoderBusyException e) {
+            //La cola de BCrypt está llena: se trata como un fallo de autenticación para responder 503 y no 500
+            throw new AuthenticationServiceException(e.getMessage(), e);
+        }
     }
 
     /**
@@ -82,27 +80,12 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         
         String username = user.getUsername();
     
-        Collection<? extends GrantedAuthority> roles = authResult.getAuthorities();
-        //Si encuentra el rol de administrador, isAdmin será true.
-        boolean isAdmin = roles.stream().anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN"));
         /**
-         * Creamos un objeto Claims para almacenar información adicional en el token.
-         * En este caso, almacenamos los roles del usuario y el nombre de usuario.
+         * El token guarda el nombre de usuario, los roles del usuario como array ("roles")
+         * y si es administrador ("isAdmin"), y caduca en 1 hora.
          */
-        Claims claims = Jwts
-                .claims()
-                .add("authorities", new ObjectMapper().writeValueAsString(roles))
-                .add("username", username)
-                .add("isAdmin", isAdmin) //Si isAdmin es true, lo agregamos al token.
-                .build();
-
-        String jwt = Jwts.builder()
-            .subject(username)
-            .claims(claims)  //Añade la información adicional al token de autenticación como los roles y el nombre de usuario.
-            .signWith(SECRET_KEY) //Firma el token con la clave secreta.
-            .issuedAt(new Date())
-            .expiration(new Date(System.currentTimeMillis() + 3600000)) //1 hora expiración del token.
-            .compact(); //Genera el token de autenticación.
+        String jwt = TokenJWTCodec.createToken(keyRing, username, authResult.getAuthorities());
+        RequestRole.set(request, authResult.getAuthorities()); //Rol para las métricas de la petición de login
 
         //Pasamos en la cabecera de la respuesta el token de autenticación.
         /** El esquema "Bearer" se especifica en el encabezado Authorization de una solicitud HTTP 
@@ -116,13 +99,14 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         body.put("username", username);
         body.put("message", String.format("%s Autenticación exitosa", username));
 
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body)); //Convierte a un String con estructura JSON.
         response.setContentType(CONTENT_TYPE); //Tipo de contenido JSON.
         response.setStatus(200); //Código de estado HTTP 200 OK.
+        TokenJWTCodec.writeBody(response.getWriter(), body); //Escribe el cuerpo con estructura JSON.
     }
     /**
      * Este metodo se ejecuta si la autenticación falla manda el error HTTP 401 de no autorizado.
      * Estos errores se comprueban con las validaciones en el Postman.
+     * Si la cola de BCrypt está llena responde 503 con Retry-After: las credenciales no se han llegado a comprobar.
      */
 
     @Override
@@ -131,12 +115,35 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         
         Map<String, String> body = new HashMap<>();
 
+        if (isBusy(failed)) {
+            body.put("message", "El servidor está procesando demasiados inicios de sesión, inténtelo de nuevo en unos segundos");
+            body.put("error", failed.getMessage());
+            response.setContentType(CONTENT_TYPE);
+            response.setHeader("Retry-After", "1");
+            response.setStatus(503);
+            TokenJWTCodec.writeBody(response.getWriter(), body);
+            return;
+        }
+
         body.put("message", "Token no válido: Error de autenticación: " + failed.getMessage());
         body.put("error", failed.getMessage());
         
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
         response.setContentType(CONTENT_TYPE);
         response.setStatus(401);
+        TokenJWTCodec.writeBody(response.getWriter(), body);
+    }
+
+    /**
+     * DaoAuthenticationProvider envuelve en InternalAuthenticationServiceException los errores al buscar el usuario,
+     * también el rechazo del hash que calcula para un usuario inexistente, así que se busca en toda la cadena de causas.
+     */
+    private static boolean isBusy(Throwable failed) {
+        for (Throwable cause = failed; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PasswordEncoderBusyException) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
@@ -3,26 +3,27 @@ package com.springboot.backend.ruslan.usersapp.users_backend.auth.filter;
 import static com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTConfig.*;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-
-import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.springboot.backend.ruslan.usersapp.users_backend.auth.SimpleGrantedAuthorityJsonCreator;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.RequestRole;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCache;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCache.ValidatedToken;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCodec;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -34,17 +35,43 @@ import jakarta.servlet.http.HttpServletResponse;
  * Extiende de la clase BasicAuthenticationFilter que es un filtro de autenticación básico de Spring Security.
  * Se encarga de validar el token JWT que se envía en la cabecera de la petición.
  * Si el token es válido, se extraen los claims (reclamaciones) del token, incluyendo el nombre de usuario (username)
- *  y los roles (authorities).
+ *  y los roles (roles, o authorities en los tokens con el formato antiguo).
  * Se crean los roles a partir de las authorities obtenidas del token.
  * Se crea un objeto UsernamePasswordAuthenticationToken con el nombre de usuario y los roles.
+ * El usuario y los roles de los tokens ya validados se guardan en TokenJWTCache hasta su expiración para no repetir
+ * la verificación; el UsernamePasswordAuthenticationToken se crea de nuevo en cada petición.
+ * El tiempo de validación se publica como security.jwt.verify (cache=hit|miss, outcome=valid|invalid)
+ * y el rol del usuario se guarda en la petición para etiquetar las métricas (RequestRole).
  */
 
 public class JWTValidationFilter extends BasicAuthenticationFilter{
 
+    private final JwtKeyRing keyRing;
+
+    private final TokenJWTCache tokenCache;
+
+    private final Timer cachedTimer;
+
+    private final Timer validTimer;
 
-    public JWTValidationFilter(AuthenticationManager authenticationManager) {
+    private final Timer invalidTimer;
+
+    public JWTValidationFilter(AuthenticationManager authenticationManager, JwtKeyRing keyRing, TokenJWTCache tokenCache,
+            MeterRegistry registry) {
         super(authenticationManager);
+        this.keyRing = keyRing;
+        this.tokenCache = tokenCache;
+        this.cachedTimer = verifyTimer(registry, "hit", "valid");
+        this.validTimer = verifyTimer(registry, "miss", "valid");
+        this.invalidTimer = verifyTimer(registry, "miss", "invalid");
+    }
 
+    private static Timer verifyTimer(MeterRegistry registry, String cache, String outcome) {
+        return Timer.builder("security.jwt.verify")
+                .description("Tiempo de validación del token JWT de cada petición")
+                .tag("cache", cache)
+                .tag("outcome", outcome)
+                .register(registry);
     }
 
     @Override
@@ -61,32 +88,42 @@ public class JWTValidationFilter extends BasicAuthenticationFilter{
                 return;
             }
 
-            String token = header.replace(PREFIX_TOKEN, "");
-            
-            try{
-                Claims claims = Jwts.parser().verifyWith(SECRET_KEY).build().parseSignedClaims(token).getPayload();
-                String username = claims.getSubject();
-                Object authoritiesClaims = claims.get("authorities"); // Se obtienen los roles del token
-
-                Collection<? extends GrantedAuthority> roles = Arrays.asList(new ObjectMapper()
-                .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class)
-                .readValue(authoritiesClaims.toString().getBytes(), SimpleGrantedAuthority[].class)); 
-                
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(username, null, 
-                roles);
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                chain.doFilter(request, response);
-            }catch(JwtException e){
-                
-                Map<String, String> body = new HashMap<>();
-                body.put("error", e.getMessage());
-                body.put("message", "El token no es valido");
-
-                response.getWriter().write(new ObjectMapper().writeValueAsString(body));
-                response.setStatus(401);
-                response.setContentType(CONTENT_TYPE);
+            String token = header.substring(PREFIX_TOKEN.length());
+
+            // Si el token ya fue validado se reutilizan el usuario y los roles guardados sin verificar de nuevo la firma.
+            long start = System.nanoTime();
+            ValidatedToken validated = tokenCache.get(token);
+            if(validated != null){
+                cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }else{
+                try{
+                    Claims claims = TokenJWTCodec.parse(keyRing, token);
+                    String username = claims.getSubject();
+                    Collection<? extends GrantedAuthority> roles = TokenJWTCodec.authorities(claims); // Se obtienen los roles del token
+
+                    validated = new ValidatedToken(username, roles);
+                    tokenCache.put(token, claims.getExpiration(), validated);
+                    validTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }catch(JwtException e){
+                    invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    
+                    Map<String, String> body = new HashMap<>();
+                    body.put("error", e.getMessage());
+                    body.put("message", "El token no es valido");
+
+                    response.setStatus(401);
+                    response.setContentType(CONTENT_TYPE);
+                    TokenJWTCodec.writeBody(response.getWriter(), body);
+                    return;
+                }
             }
-            
+
+            // Cada petición tiene su propio Authentication: es mutable y no se comparte a través de la caché.
+            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(validated.username(), null,
+                    validated.authorities());
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            RequestRole.set(request, authenticationToken.getAuthorities());
+            chain.doFilter(request, response);
        
     }
 
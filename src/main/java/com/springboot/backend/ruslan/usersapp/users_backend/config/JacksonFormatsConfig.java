@@ -0,0 +1,50 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Respuestas en formatos binarios además de JSON: un cliente que envía Accept: application/cbor o
+ * Accept: application/x-jackson-smile recibe los mismos datos en CBOR o Smile, que ocupan menos y se generan más rápido.
+ * Sin esa cabecera (o si acepta JSON o cualquier tipo) se sigue respondiendo en JSON. También se aceptan cuerpos
+ * de petición en esos formatos con la cabecera Content-Type correspondiente.
+ *
+ * Los ObjectMapper de CBOR y Smile se crean a partir del Jackson2ObjectMapperBuilder de Spring Boot, así que tienen
+ * la misma configuración (propiedades spring.jackson.* y módulos) que el de JSON. Los convertidores se crean una vez
+ * y sustituyen a los que Spring MVC añadiría por defecto con un ObjectMapper sin esa configuración.
+ */
+@Configuration
+public class JacksonFormatsConfig {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper(builder));
+    }
+
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    /**
+     * ObjectMapper de CBOR con la configuración del builder (el builder de Spring Boot es prototype: cada uso recibe uno nuevo).
+     */
+    public static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.createXmlMapper(false).factory(new CBORFactory()).build();
+    }
+
+    public static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.createXmlMapper(false).factory(new SmileFactory()).build();
+    }
+
+}
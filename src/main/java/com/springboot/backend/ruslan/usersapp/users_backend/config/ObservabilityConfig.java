@@ -0,0 +1,51 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.RequestRole;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Métricas de latencia que se publican en actuator (/actuator/metrics y /actuator/prometheus):
+ * http.server.requests por endpoint (uri, method, status, outcome y role), spring.data.repository.invocations
+ * por repositorio y método, security.password.hash, security.jwt.verify y hibernate.statements.per.request.
+ * Los percentiles p50/p95/p99 y los histogramas se configuran en application.properties.
+ */
+@Configuration
+public class ObservabilityConfig {
+
+    /**
+     * Añade la etiqueta role a http.server.requests a partir del atributo que guardan los filtros JWT.
+     */
+    @Bean
+    DefaultServerRequestObservationConvention roleServerRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context).and("role", RequestRole.get(context.getCarrier()));
+            }
+        };
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    @Bean
+    FilterRegistrationBean<SqlStatementCountFilter> sqlStatementCountFilter(MeterRegistry registry) {
+        FilterRegistrationBean<SqlStatementCountFilter> filter = new FilterRegistrationBean<>(new SqlStatementCountFilter(registry));
+        filter.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return filter;
+    }
+
+}
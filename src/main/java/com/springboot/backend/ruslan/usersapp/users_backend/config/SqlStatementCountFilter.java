@@ -0,0 +1,52 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.config;
+
+import java.io.IOException;
+
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.RequestRole;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Publica cuántas sentencias SQL ha ejecutado Hibernate en cada petición (hibernate.statements.per.request),
+ * con las mismas etiquetas que http.server.requests: uri (la plantilla de la ruta), method, outcome y role.
+ * Se registra antes que la cadena de seguridad para contar también las consultas del login.
+ */
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public SqlStatementCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = SqlStatementCounter.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("hibernate.statements.per.request")
+                    .description("Sentencias SQL ejecutadas por Hibernate en cada petición")
+                    .baseUnit("statements")
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .tag("method", request.getMethod())
+                    .tag("outcome", Outcome.forStatus(response.getStatus()).name())
+                    .tag("role", RequestRole.get(request))
+                    .register(registry)
+                    .record(statements);
+        }
+    }
+
+}
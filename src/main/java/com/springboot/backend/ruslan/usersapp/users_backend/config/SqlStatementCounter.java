@@ -0,0 +1,36 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara en el hilo actual mientras hay un recuento abierto.
+ * SqlStatementCountFilter abre el recuento al empezar cada petición y lo publica al terminar.
+ * Las sentencias que se ejecutan en otros hilos (por ejemplo, las respuestas en streaming) no se cuentan.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public static void begin() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Cierra el recuento del hilo actual y devuelve el número de sentencias.
+     */
+    public static int end() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Detecta con JFR cuándo un hilo virtual queda fijado (pinned) a su hilo portador, normalmente por bloquearse
+ * dentro de un bloque synchronized o de código nativo. Mientras dura, el hilo portador no puede ejecutar
+ * otros hilos virtuales y se pierde la ventaja del modo de hilos virtuales.
+ *
+ * Cada evento jdk.VirtualThreadPinned que supera el umbral se atribuye al primer frame de la pila que no es del JDK,
+ * que es el código (nuestro o de una dependencia) que ha provocado el bloqueo. Se publica en actuator como
+ * jvm.threads.virtual.pinned con la etiqueta frame, y la primera vez que aparece cada frame se registra la pila en el log.
+ * A partir de MAX_FRAMES frames distintos el resto se agrupa en la etiqueta "other".
+ *
+ * Se activa con app.diagnostics.pinning.enabled=true (activado en el perfil virtual-threads).
+ */
+@Component
+@ConditionalOnProperty(name = "app.diagnostics.pinning.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int MAX_FRAMES = 100;
+
+    private static final int LOGGED_STACK_DEPTH = 20;
+
+    private static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+
+    private final Duration threshold;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry registry,
+            @Value("${app.diagnostics.pinning.threshold:20ms}") Duration threshold) {
+        this.registry = registry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Detección de hilos virtuales fijados activada (umbral {} ms)", threshold.toMillis());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String frame = culprit(frames);
+
+        Timer timer = timers.get(frame);
+        if (timer == null && timers.size() >= MAX_FRAMES) {
+            //Se limita el número de etiquetas distintas; a partir de MAX_FRAMES todo cuenta como "other"
+            //y la pila solo se registra la primera vez, para no llenar el log con cada evento
+            timer = timers.get(OTHER);
+        }
+        if (timer == null) {
+            String tag = timers.size() < MAX_FRAMES ? frame : OTHER;
+            timer = timers.computeIfAbsent(tag, key -> Timer.builder("jvm.threads.virtual.pinned")
+                    .description("Tiempo que los hilos virtuales han estado fijados a su hilo portador")
+                    .tag("frame", key)
+                    .register(registry));
+            log.warn("Hilo virtual fijado {} ms en {}:\n\t{}", event.getDuration().toMillis(), frame,
+                    frames.stream().limit(LOGGED_STACK_DEPTH).map(VirtualThreadPinningMonitor::format)
+                            .collect(Collectors.joining("\n\t")));
+        }
+        timer.record(event.getDuration());
+    }
+
+    /**
+     * Primer frame de la pila fuera del JDK: es el código que ha entrado en synchronized o en código nativo.
+     */
+    private static String culprit(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return frames.isEmpty() ? "unknown" : format(frames.get(0));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void destroy() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+}
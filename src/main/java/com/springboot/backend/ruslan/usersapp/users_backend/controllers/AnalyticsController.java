@@ -0,0 +1,73 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import java.time.YearMonth;
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.IAnalyticsService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@CrossOrigin(originPatterns = {"*"}) // Permite el acceso a la API desde cualquier origen
+@RestController
+@Tag(name = "Analítica", description = "API para consultar las ventas acumuladas por cliente, producto y mes")
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private IAnalyticsService analyticsService;
+
+    @Operation(summary = "Clientes con más ventas", description = "Obtiene los clientes ordenados por importe total facturado, desde las tablas de acumulados")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Clientes con su número de facturas e importe total")
+    })
+    @GetMapping("/customers/top")
+    public ResponseEntity<?> topCustomers(
+        @Parameter(description = "Número de clientes a devolver") @RequestParam(required = false) Integer limit) {
+
+        return ResponseEntity.ok(analyticsService.topCustomers(CursorPage.limitOf(limit)));
+    }
+
+    @Operation(summary = "Productos con más ventas", description = "Obtiene los productos ordenados por importe total facturado, desde las tablas de acumulados")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Productos con las unidades vendidas e importe total")
+    })
+    @GetMapping("/products/top")
+    public ResponseEntity<?> topProducts(
+        @Parameter(description = "Número de productos a devolver") @RequestParam(required = false) Integer limit) {
+
+        return ResponseEntity.ok(analyticsService.topProducts(CursorPage.limitOf(limit)));
+    }
+
+    @Operation(summary = "Ventas por mes", description = "Obtiene el número de facturas y el importe de cada mes del intervalo. Por defecto, los últimos 12 meses")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Meses con ventas del intervalo, en orden cronológico"),
+        @ApiResponse(responseCode = "400", description = "El mes inicial es posterior al final")
+    })
+    @GetMapping("/months")
+    public ResponseEntity<?> monthly(
+        @Parameter(description = "Primer mes (aaaa-mm)") @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+        @Parameter(description = "Último mes (aaaa-mm)") @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+
+        YearMonth last = to != null ? to : YearMonth.now();
+        YearMonth first = from != null ? from : last.minusMonths(11);
+        if (first.isAfter(last)) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", "el mes inicial es posterior al final"));
+        }
+        return ResponseEntity.ok(analyticsService.monthly(first, last));
+    }
+
+}
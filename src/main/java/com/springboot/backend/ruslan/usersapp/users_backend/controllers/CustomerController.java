@@ -1,11 +1,17 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,10 +19,17 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.CustomerExportService;
 import com.springboot.backend.ruslan.usersapp.users_backend.services.ICustomerService;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.IInvoiceService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -36,16 +49,88 @@ public class CustomerController {
     
     @Autowired
     private ICustomerService customerService;
-    @Operation(summary = "Obtener todos los clientes", description = "Obtiene una listado de todos los clientes disponibles en la BBDD")
+
+    @Autowired
+    private IInvoiceService invoiceService;
+
+    @Autowired
+    private CustomerExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Operation(summary = "Obtener todos los clientes", description = "Obtiene una listado de todos los clientes disponibles en la BBDD. Con after/limit se obtiene una página por cursor")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Clientes encontrados"),
         @ApiResponse(responseCode = "404", description = "Clientes no encontrados")
     })
     @GetMapping
-    public List<Customer> getAllClientes(){
-        return customerService.findALL();
+    public ResponseEntity<?> getAllClientes(
+        @Parameter(description = "Cursor: ID del último cliente recibido") @RequestParam(required = false) Long after,
+        @Parameter(description = "Número máximo de clientes por página") @RequestParam(required = false) Integer limit,
+        @Parameter(description = "Campos a devolver separados por comas, por ejemplo name,email (el id se incluye siempre)") @RequestParam(required = false) String fields){
+
+        if(fields != null){
+            //Solo se consultan y se serializan las columnas pedidas
+            try {
+                return ResponseEntity.ok(after == null && limit == null
+                        ? customerService.findAllFields(fields)
+                        : customerService.findPageFields(fields, after, CursorPage.limitOf(limit)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+            }
+        }
+        if(after == null && limit == null){
+            return ResponseEntity.ok(customerService.findALL());
+        }
+        return ResponseEntity.ok(customerService.findPage(after, CursorPage.limitOf(limit)));
     }
      
+    @Operation(summary = "Exportar todos los clientes", description = "Descarga todos los clientes en CSV o NDJSON. Las filas se envían a medida que se leen de la BBDD. "
+            + "En el CSV, los textos que empiezan por =, +, -, @, tabulador o retorno de carro llevan delante una comilla simple, "
+            + "salvo los teléfonos y números (+34 600 000 000, -5)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Fichero con los clientes"),
+        @ApiResponse(responseCode = "400", description = "Formato no soportado")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+        @Parameter(description = "Formato del fichero: csv o ndjson") @RequestParam(defaultValue = "csv") String format){
+
+        CustomerExportService.Format exportFormat;
+        try {
+            exportFormat = CustomerExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            //StreamingResponseBody solo admite cuerpos en streaming, así que el error también se escribe así
+            Map<String, String> error = Collections.singletonMap("error", "formato no soportado: " + format);
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+
+        StreamingResponseBody body = out -> exportService.export(exportFormat, out);
+        MediaType contentType = exportFormat == CustomerExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.parseMediaType("application/x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("customers." + format.toLowerCase(Locale.ROOT)).build().toString())
+                .body(body);
+    }
+
+    @Operation(summary = "Buscar clientes", description = "Busca clientes por nombre, apellido, email o ciudad. Admite prefijos y errores de escritura y devuelve los resultados ordenados por relevancia")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resultados de la búsqueda (puede estar vacío)")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+        @Parameter(description = "Texto a buscar") @RequestParam String q,
+        @Parameter(description = "Número de página, empezando en 0") @RequestParam(defaultValue = "0") int page,
+        @Parameter(description = "Número de resultados por página") @RequestParam(required = false) Integer size){
+
+        return ResponseEntity.ok(customerService.search(q, Math.max(0, page), CursorPage.limitOf(size)));
+    }
+
     @Operation(summary = "Obtener un cliente por su apellido", description = "Método personalizado que obtiene un cliente por su apellido de la BBDD")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Cliente encontrado"),
@@ -65,6 +150,22 @@ public class CustomerController {
         }
     }
 
+    @Operation(summary = "Obtener las facturas de un cliente", description = "Obtiene las facturas del cliente con el número de líneas y el total de cada una calculados en la BBDD")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Facturas del cliente (puede estar vacío)"),
+        @ApiResponse(responseCode = "404", description = "Cliente no encontrado por el ID proporcionado")
+    })
+    @GetMapping("/{id}/invoices")
+    public ResponseEntity<?> showInvoices(
+        @Parameter(description = "Introduzca: ID del cliente") @PathVariable Long id){
+
+        Optional<List<InvoiceSummary>> invoices = invoiceService.findByCustomerId(id);
+        if(invoices.isPresent()){
+            return ResponseEntity.ok(invoices.orElseThrow());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("error", "el cliente no existe"));
+    }
+
     @Operation(summary = "Crear un nuevo cliente", description = "Método para crear un nuevo cliente en la BBDD")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Cliente creado correctamente"),
@@ -0,0 +1,85 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ChangeStream;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@CrossOrigin(originPatterns = {"*"}) // Permite el acceso a la API desde cualquier origen
+@RestController
+@Tag(name = "Eventos", description = "Avisos en tiempo real (Server-Sent Events) de los cambios en usuarios, clientes y productos")
+@RequestMapping("/api/events")
+public class EventController {
+
+    @Autowired
+    private ChangeStream changeStream;
+
+    /**
+     * Abre un flujo SSE con un evento "change" por cada usuario, cliente o producto creado, modificado o eliminado.
+     * El aviso solo lleva el tipo y el id (el username en los usuarios); el cliente vuelve a pedir lo que necesite (por ejemplo GET /api/users/changes).
+     * Requiere un token (cabecera Authorization) y cada usuario puede tener abiertas como mucho
+     * app.events.max-subscribers-per-user conexiones.
+     * @param entities tipos a los que suscribirse separados por comas (user, customer, product); por defecto todos.
+     */
+    @Operation(summary = "Suscribirse a los cambios", description = "Flujo text/event-stream con un evento change {\"entity\",\"id\"} por cada cambio; sin id si han cambiado todas las entidades del tipo")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flujo de eventos abierto"),
+        @ApiResponse(responseCode = "400", description = "Tipo de entidad desconocido o sin avisos (role)"),
+        @ApiResponse(responseCode = "401", description = "El token de autorización es inválido o ha expirado"),
+        @ApiResponse(responseCode = "403", description = "Sin token de autorización"),
+        @ApiResponse(responseCode = "429", description = "El usuario ya tiene abiertas todas las conexiones permitidas"),
+        @ApiResponse(responseCode = "503", description = "Se ha alcanzado el número máximo de suscriptores")
+    })
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @SecurityRequirement(name = "BearerAuth")
+    public ResponseEntity<SseEmitter> subscribe(
+        @Parameter(description = "Tipos separados por comas: user, customer, product") @RequestParam(required = false) Set<String> entities,
+        Authentication authentication) {
+
+        Set<EntityChangeEvent.Entity> types = EnumSet.noneOf(EntityChangeEvent.Entity.class);
+        if (entities != null) {
+            for (String entity : entities) {
+                EntityChangeEvent.Entity type;
+                try {
+                    type = EntityChangeEvent.Entity.valueOf(entity.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().build();
+                }
+                //ROLE existe para invalidar cachés pero nunca se avisa
+                if (!ChangeStream.ENTITIES.contains(type)) {
+                    return ResponseEntity.badRequest().build();
+                }
+                types.add(type);
+            }
+        }
+        SseEmitter emitter = changeStream.subscribe(authentication.getName(), types);
+        if (emitter == null) {
+            //subscribe comprueba los dos límites a la vez; aquí solo se decide qué código devolver
+            return ResponseEntity.status(changeStream.atUserLimit(authentication.getName())
+                    ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceDetail;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.IInvoiceService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@CrossOrigin(originPatterns = {"*"}) // Permite el acceso a la API desde cualquier origen
+@RestController
+@Tag(name = "Facturas", description = "API para consultar las facturas")
+@RequestMapping("/api/invoices")
+public class InvoiceController {
+
+    @Autowired
+    private IInvoiceService invoiceService;
+
+    @Operation(summary = "Obtener una factura por su ID", description = "Obtiene la factura con sus líneas, el importe de cada línea y el total calculados en la BBDD")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Factura encontrada"),
+        @ApiResponse(responseCode = "404", description = "Factura no encontrada por el ID proporcionado")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<?> showInvoice(
+        @Parameter(description = "Introduzca: ID de la factura a buscar en la BBDD") @PathVariable Long id) {
+
+        Optional<InvoiceDetail> invoice = invoiceService.findById(id);
+        if (invoice.isPresent()) {
+            return ResponseEntity.ok(invoice.orElseThrow());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("error", "la factura no existe"));
+    }
+
+}
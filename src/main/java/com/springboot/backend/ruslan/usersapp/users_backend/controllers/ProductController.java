@@ -1,18 +1,26 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateRequest;
 import com.springboot.backend.ruslan.usersapp.users_backend.services.IProductService;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ProductCatalogCache;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ProductPriceService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -23,10 +31,13 @@ import jakarta.validation.Valid;
 
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 
 @CrossOrigin(originPatterns = {"*"}) // Permite el acceso a la API desde cualquier origen usando originPatterns 
@@ -38,25 +49,82 @@ public class ProductController {
     @Autowired
     private IProductService productService;
 
-    @Operation(summary = "Obtener todos los productos", description = "Obtiene una listado de todos los productos disponibles en la BBDD")
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ProductPriceService priceService;
+
+    @Operation(summary = "Obtener todos los productos", description = "Obtiene una listado de todos los productos disponibles en la BBDD. Con after/limit se obtiene una página por cursor. El listado completo admite If-None-Match (ETag) y gzip. Con Accept: application/cbor o application/x-jackson-smile se responde en ese formato binario")
        @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Productos encontrados"),
+            @ApiResponse(responseCode = "304", description = "El catálogo no ha cambiado desde el ETag enviado"),
             @ApiResponse(responseCode = "404", description = "Productos no encontrados")
     })
     @GetMapping
-    public List<Product> list() {
-        return productService.findALL();
+    public ResponseEntity<?> list(
+        @Parameter(description = "Cursor: ID del último producto recibido") @RequestParam(required = false) Long after,
+        @Parameter(description = "Número máximo de productos por página") @RequestParam(required = false) Integer limit,
+        @Parameter(description = "Campos a devolver separados por comas, por ejemplo name,price (el id se incluye siempre)") @RequestParam(required = false) String fields,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        WebRequest request) {
+
+        if (fields != null) {
+            //Solo se consultan y se serializan las columnas pedidas
+            try {
+                return ResponseEntity.ok(after == null && limit == null
+                        ? productService.findAllFields(fields)
+                        : productService.findPageFields(fields, after, CursorPage.limitOf(limit)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+            }
+        }
+
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(productService.findPage(after, CursorPage.limitOf(limit)));
+        }
+
+        //El ETag sale de la versión del catálogo: si coincide se responde 304 sin consultar la BBDD
+        ProductCatalogCache.Format format = ProductCatalogCache.Format.negotiate(accept);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (request.checkNotModified(catalogCache.listETag(format, gzip))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+
+        ProductCatalogCache.Body body = catalogCache.listBody(format);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.eTag(body.gzipETag()).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.eTag(body.contentETag()).body(body.content());
     }
 
     @Operation(summary = "Obtener un producto por su ID", description = "Método personalizado que obtiene un producto por su ID de la BBDD")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Producto encontrado"),
+        @ApiResponse(responseCode = "304", description = "El producto no ha cambiado desde el ETag enviado"),
         @ApiResponse(responseCode = "404", description = "Producto no encontrado por el ID proporcionado")
     })
     @GetMapping("{id}")
-    public Product showProduct(
-        @Parameter(description = "Introduzca: ID del producto a buscar en la BBDD") @PathVariable Long id) {
-        return productService.findById(id).get();
+    public ResponseEntity<?> showProduct(
+        @Parameter(description = "Introduzca: ID del producto a buscar en la BBDD") @PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        WebRequest request) {
+
+        //Cada formato (JSON, CBOR o Smile) tiene su propio ETag
+        if (request.checkNotModified(catalogCache.productETag(id, ProductCatalogCache.Format.negotiate(accept)))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        Optional<Product> product = productService.findById(id);
+        if (product.isPresent()) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(product.orElseThrow());
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("error", "el producto no existe"));
     }
 
     @Operation(summary = "Crear un producto", description = "Método personalizado que crea un producto en la BBDD")
@@ -76,6 +144,21 @@ public class ProductController {
 
     }
 
+    @Operation(summary = "Cambiar precios de forma masiva", description = "Cambia el precio de una lista de productos (prices) o aplica un porcentaje a los productos que cumplen un filtro (percentage y filter), en una sola transacción")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Número de productos actualizados e ids no encontrados"),
+        @ApiResponse(responseCode = "400", description = "Error en la validación de los datos")
+    })
+    @PatchMapping("/prices")
+    public ResponseEntity<?> updatePrices(@Valid @RequestBody PriceUpdateRequest request, BindingResult result) {
+
+        if (result.hasErrors()) {
+            return validation(result);
+        }
+
+        return ResponseEntity.ok(priceService.updatePrices(request));
+    }
+
     private ResponseEntity<?> validation(BindingResult result) {
         Map<String, String> errors = new HashMap<>();
         result.getFieldErrors().forEach(error -> {
@@ -84,4 +167,17 @@ public class ProductController {
         return ResponseEntity.badRequest().body(errors);
     }
 
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
 }
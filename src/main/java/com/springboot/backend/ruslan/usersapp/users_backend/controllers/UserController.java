@@ -1,8 +1,13 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
 import com.springboot.backend.ruslan.usersapp.users_backend.models.UserRequest;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.SyncTokenExpiredException;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.UserImportService;
 import com.springboot.backend.ruslan.usersapp.users_backend.services.UserService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,11 +18,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -59,21 +68,75 @@ public class UserController {
     @Autowired 
     private UserService service;
 
+    @Autowired
+    private UserImportService importService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * La anotación @GetMapping sirve para realizar una solicitud HTTP para recuperar 
      * en este caso una lista de usuarios del servidor.
-     * @return devuelve una lista de usuarios y el estado HTTP 200 OK.
+     * Si se indica after o limit se devuelve una página por cursor (CursorPage) en lugar de la tabla completa:
+     * el cliente pide la siguiente página enviando como after el nextCursor recibido.
+     * @param after id del último usuario recibido, la página empieza en el siguiente.
+     * @param limit número máximo de usuarios de la página.
+     * @return devuelve una lista de usuarios (o una página de usuarios) y el estado HTTP 200 OK.
      */
 
-     @Operation(summary = "Obtener todos los usuarios", description = "Obtiene una lista de todos los usuarios registrados")
+     @Operation(summary = "Obtener todos los usuarios", description = "Obtiene una lista de todos los usuarios registrados. Con after/limit se obtiene una página por cursor")
         @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Usuarios encontrados"),
             @ApiResponse(responseCode = "204", description = "No hay usuarios registrados")
     }) 
     @GetMapping
    
-    public List<User> list(){
-        return service.findALL();
+    public ResponseEntity<?> list(
+        @Parameter(description = "Cursor: ID del último usuario recibido") @RequestParam(required = false) Long after,
+        @Parameter(description = "Número máximo de usuarios por página") @RequestParam(required = false) Integer limit,
+        @Parameter(description = "Campos a devolver separados por comas, por ejemplo name,email (el id se incluye siempre)") @RequestParam(required = false) String fields){
+
+        if(fields != null){
+            //Solo se consultan y se serializan las columnas pedidas
+            try {
+                return ResponseEntity.ok(after == null && limit == null
+                        ? service.findAllFields(fields)
+                        : service.findPageFields(fields, after, CursorPage.limitOf(limit)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+            }
+        }
+        if(after == null && limit == null) {
+            return ResponseEntity.ok(service.findALL());
+        }
+        return ResponseEntity.ok(service.findPage(after, CursorPage.limitOf(limit)));
+    }
+
+    /**
+     * Sincronización incremental del listado de usuarios: devuelve solo los usuarios creados, modificados
+     * o eliminados desde el token since, leídos por el índice de la fecha de cambio.
+     * Sin since se devuelven todos los usuarios y el token con el que pedir los siguientes cambios.
+     * @param since token next de la sincronización anterior.
+     * @param limit número máximo de usuarios cambiados (y de eliminados) de la respuesta; si hasMore es true quedan más.
+     */
+    @Operation(summary = "Cambios en los usuarios", description = "Obtiene los usuarios creados, modificados o eliminados desde el token de la sincronización anterior")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Cambios desde el token y token de la siguiente sincronización"),
+        @ApiResponse(responseCode = "400", description = "Token de sincronización no válido", content = @Content(schema = @Schema(implementation = Map.class))),
+        @ApiResponse(responseCode = "410", description = "Token demasiado antiguo: hay que volver a descargar el listado completo", content = @Content(schema = @Schema(implementation = Map.class)))
+    })
+    @GetMapping("/changes")
+    public ResponseEntity<?> changes(
+        @Parameter(description = "Token next de la sincronización anterior") @RequestParam(required = false) String since,
+        @Parameter(description = "Número máximo de usuarios por respuesta") @RequestParam(required = false) Integer limit) {
+
+        try {
+            return ResponseEntity.ok(service.findChanges(since, CursorPage.limitOf(limit == null ? CursorPage.MAX_LIMIT : limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        } catch (SyncTokenExpiredException e) {
+            return ResponseEntity.status(HttpStatus.GONE).body(Collections.singletonMap("error", e.getMessage()));
+        }
     }
 
     /**
@@ -128,6 +191,43 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(service.save(user));
     }
 
+    /**
+     * Importación masiva de usuarios. El cuerpo de la petición es un fichero NDJSON con un usuario en JSON por línea
+     * (los mismos campos que POST /api/users) y se procesa según llega, por bloques.
+     * La respuesta también es NDJSON: una línea por cada línea de la petición con su resultado
+     * (created con el id asignado, invalid con los errores de validación o error), que se envía al cliente
+     * a medida que se guarda cada bloque. La memoria usada no depende del tamaño del fichero.
+     * @param request petición de la que se lee el flujo NDJSON.
+     * @param response respuesta en la que se escriben los resultados.
+     */
+    @Operation(summary = "Importar usuarios", description = "Crea usuarios de forma masiva a partir de un flujo NDJSON (un usuario por línea) y devuelve el resultado de cada línea en NDJSON")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resultado de cada línea del fichero"),
+        @ApiResponse(responseCode = "401", description = "El token de autorización es inválido o ha expirado"),
+        @ApiResponse(responseCode = "403", description = "No autorizado para crear usuarios")
+    })
+    @PostMapping(path = "/batch", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    @SecurityRequirement(name = "BearerAuth")
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        ObjectWriter writer = objectMapper.writer();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/x-ndjson");
+        OutputStream out = response.getOutputStream();
+
+        importService.importUsers(request.getInputStream(), results -> {
+            try {
+                for (var result : results) {
+                    out.write(writer.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                out.flush(); //Se envían al cliente los resultados de cada bloque en cuanto se guardan
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     /**
      * La anotación @PutMapping sirve para actualizar un recurso existente en el servidor al que se le pasa un id.
      * @param id se pasa el id del usuario que se quiere actualizar a través de la URL desde el cliente Angular.
@@ -0,0 +1,73 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.entities;
+
+import java.time.Instant;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Fila de la tabla cache_invalidations (outbox): una por clave de caché que hay que invalidar en las demás instancias.
+ * Se inserta en la misma transacción que el cambio, así que solo existe si el cambio se ha confirmado.
+ * entity_key null significa todas las entidades del tipo y origin es la instancia que hizo el cambio.
+ */
+@Entity
+@Table(name = "cache_invalidations", indexes = @Index(name = "idx_cache_invalidations_created_at", columnList = "created_at"))
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EntityChangeEvent.Entity entity;
+
+    @Column(name = "entity_key")
+    private String key;
+
+    @Column(nullable = false, length = 64)
+    private String origin;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public CacheInvalidation() {
+    }
+
+    public CacheInvalidation(EntityChangeEvent.Entity entity, String key, String origin, Instant createdAt) {
+        this.entity = entity;
+        this.key = key;
+        this.origin = origin;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EntityChangeEvent.Entity getEntity() {
+        return entity;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+}
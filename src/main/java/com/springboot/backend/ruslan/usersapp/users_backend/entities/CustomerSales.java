@@ -0,0 +1,50 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Acumulado de ventas de un cliente: número de facturas e importe total.
+ * Lo mantiene SalesRollupJob a partir de las facturas nuevas; no se modifica desde la API.
+ */
+@Entity
+@Table(name = "sales_by_customer", indexes = @Index(name = "idx_sales_by_customer_revenue", columnList = "revenue"))
+public class CustomerSales {
+
+    @Id
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Column(name = "invoice_count")
+    private long invoiceCount;
+
+    private double revenue;
+
+    public CustomerSales() {
+    }
+
+    public CustomerSales(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public void add(long invoices, double amount) {
+        this.invoiceCount += invoices;
+        this.revenue += amount;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+}
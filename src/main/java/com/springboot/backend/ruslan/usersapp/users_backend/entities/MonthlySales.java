@@ -0,0 +1,49 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Acumulado de ventas de un mes: número de facturas e importe total.
+ * El mes se guarda como un entero aaaamm (202403 es marzo de 2024), que ordena igual que las fechas.
+ * Lo mantiene SalesRollupJob a partir de las facturas nuevas; no se modifica desde la API.
+ */
+@Entity
+@Table(name = "sales_by_month")
+public class MonthlySales {
+
+    @Id
+    private Integer period;
+
+    @Column(name = "invoice_count")
+    private long invoiceCount;
+
+    private double revenue;
+
+    public MonthlySales() {
+    }
+
+    public MonthlySales(Integer period) {
+        this.period = period;
+    }
+
+    public void add(long invoices, double amount) {
+        this.invoiceCount += invoices;
+        this.revenue += amount;
+    }
+
+    public Integer getPeriod() {
+        return period;
+    }
+
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Acumulado de ventas de un producto: unidades vendidas e importe total.
+ * Lo mantiene SalesRollupJob a partir de las facturas nuevas; no se modifica desde la API.
+ */
+@Entity
+@Table(name = "sales_by_product", indexes = @Index(name = "idx_sales_by_product_revenue", columnList = "revenue"))
+public class ProductSales {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    private long quantity;
+
+    private double revenue;
+
+    public ProductSales() {
+    }
+
+    public ProductSales(Long productId) {
+        this.productId = productId;
+    }
+
+    public void add(long units, double amount) {
+        this.quantity += units;
+        this.revenue += amount;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+}
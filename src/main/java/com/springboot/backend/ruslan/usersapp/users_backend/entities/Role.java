@@ -1,5 +1,9 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.entities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -8,6 +12,8 @@ import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "roles") //Caché de segundo nivel, ver application.conf
 public class Role {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
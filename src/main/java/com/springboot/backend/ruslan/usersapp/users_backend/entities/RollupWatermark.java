@@ -0,0 +1,43 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Última factura incluida en las tablas de acumulados (sales_by_*). Hay una fila por acumulado (name)
+ * y se actualiza en la misma transacción que los acumulados, así que cada factura se suma exactamente una vez.
+ * La fila también hace de cerrojo: el trabajo la bloquea con SELECT ... FOR UPDATE y dos instancias
+ * nunca procesan las mismas facturas a la vez.
+ */
+@Entity
+@Table(name = "rollup_watermarks")
+public class RollupWatermark {
+
+    @Id
+    private String name;
+
+    @Column(name = "last_invoice_id")
+    private long lastInvoiceId;
+
+    public RollupWatermark() {
+    }
+
+    public RollupWatermark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLastInvoiceId() {
+        return lastInvoiceId;
+    }
+
+    public void setLastInvoiceId(long lastInvoiceId) {
+        this.lastInvoiceId = lastInvoiceId;
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.entities;
 
+import java.time.Instant;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -7,17 +8,21 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.ArrayList;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Formula;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -33,7 +38,7 @@ import jakarta.validation.constraints.Size;
  */
 
 @Entity //Indica que la clase es una entidad de la base de datos
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_updated_at", columnList = "updated_at, id"))
 public class User {
 
     @Id
@@ -68,21 +73,31 @@ public class User {
     private String username;
 
     /**
-     * JPA ignorará este campo cuando realice operaciones de persistencia (como insertar o actualizar) en la entidad.
-     * Es útil cuando tienes campos en tu entidad que no deseas almacenar en la base de datos,
-     *  pero que aún necesitas en tu lógica de negocio.
+     * El campo admin no se almacena en la tabla users: con @Formula Hibernate lo calcula en la propia consulta
+     * con una subconsulta sobre users_roles, de modo que no hay que cargar los roles de cada usuario para saber si es administrador.
+     * Al ser una fórmula, JPA lo ignora cuando realiza operaciones de persistencia (como insertar o actualizar) en la entidad,
+     * pero aún lo necesitamos en nuestra lógica de negocio (se rellena desde el JSON al crear o actualizar un usuario).
      * JsonProperty.Access.WRITE_ONLY especifica que el campo admin solo debe ser considerado durante la deserialización 
      * (cuando se convierte JSON a un objeto Java). Nota: ver en Postman campo admin: true || false
      * Esto significa que el campo admin puede ser establecido a partir de datos JSON entrantes, 
      * pero no será incluido en la salida JSON cuando el objeto Java se serialice a JSON.
      */
     
-    @Transient  
+    @Formula("(case when exists (select 1 from users_roles ur join roles r on r.id = ur.role_id "
+        + "where ur.user_id = id and r.name = 'ROLE_ADMIN') then 1 else 0 end)")
    // @JsonProperty(access = JsonProperty.Access.WRITE_ONLY) //Nos permite luego rellenar el campo en la clase Entity o UserRequest
     private boolean admin;
 
     @NotBlank
     private String password;
+
+    /**
+     * Instante del último alta o cambio del usuario. Lo asigna UserServiceImpl (no se acepta desde el JSON)
+     * y es el orden de GET /api/users/changes, que lo recorre con el índice (updated_at, id).
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "updated_at")
+    private Instant updatedAt;
     /**
      * Al tener el usuario varios roles, se establece una relación de muchos a muchos por ello
      * creamos una lista de roles que se mapea a la tabla roles.
@@ -95,7 +110,9 @@ public class User {
      * Luego usamos inverseJoinColumns para mapear la relación inversa entre las tablas roles y users_roles
      * Al tener aqui los roles de Role que está mapeada a la tabla roles, se establece la relación entre users y roles
      * Luego tenemos que indicar los campos únicos user_id y role_id con la anotación @UniqueConstraint.
+     * Con @BatchSize los roles de varios usuarios se cargan en una sola consulta (IN) en lugar de una por usuario.
      */
+    @BatchSize(size = 100)
     @JoinTable(name = "users_roles", 
     joinColumns = {@JoinColumn(name="user_id")},
     inverseJoinColumns = {@JoinColumn(name="role_id")},
@@ -187,6 +204,12 @@ public class User {
     public void setUsername(String username) {
         this.username = username;
     }
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
     public String getPassword() {
         return password;
     }
@@ -0,0 +1,43 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Marca de un usuario eliminado, para que GET /api/users/changes pueda avisar del borrado a los clientes
+ * que ya tenían el usuario. Se inserta en la misma transacción que el borrado y se elimina pasado
+ * app.users.changes.tombstone-retention.
+ */
+@Entity
+@Table(name = "user_tombstones", indexes = @Index(name = "idx_user_tombstones_deleted_at", columnList = "deleted_at, user_id"))
+public class UserTombstone {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+    public UserTombstone() {
+    }
+
+    public UserTombstone(Long userId, Instant deletedAt) {
+        this.userId = userId;
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * CursorPage representa una página de resultados obtenida mediante paginación por cursor (keyset).
+ * En lugar de usar OFFSET, el cliente envía el último id recibido (after) y el servidor
+ * devuelve los siguientes registros con WHERE id > ? ORDER BY id LIMIT ?, de modo que el coste
+ * de cada página no depende de lo profundo que haya paginado el cliente.
+ * nextCursor es el id que el cliente debe enviar como after para pedir la siguiente página,
+ * o null si ya no quedan más registros.
+ */
+public record CursorPage<T>(List<T> content, Long nextCursor, int limit) {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Normaliza el límite recibido en la petición para que siempre esté entre 1 y MAX_LIMIT.
+     */
+    public static int limitOf(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Normaliza el cursor recibido: sin cursor se empieza desde el principio de la tabla.
+     */
+    public static long afterOf(Long after) {
+        return after == null ? 0L : after;
+    }
+
+    /**
+     * Construye la página a partir de los registros leídos. Si se han leído tantos registros como el límite,
+     * el id del último registro es el cursor de la siguiente página.
+     */
+    public static <T> CursorPage<T> of(List<T> content, int limit, Function<T, Long> id) {
+        Long next = content.size() == limit ? id.apply(content.get(content.size() - 1)) : null;
+        return new CursorPage<>(content, next, limit);
+    }
+
+}
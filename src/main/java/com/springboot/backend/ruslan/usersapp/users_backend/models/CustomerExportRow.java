@@ -0,0 +1,9 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Fila de la exportación de clientes: solo las columnas de la tabla customers, sin facturas.
+ */
+public record CustomerExportRow(Long id, String name, String lastname, String email, String phone, String address,
+        String city, String province, Integer postalCode, String country) {
+
+}
@@ -0,0 +1,8 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Ventas acumuladas de un cliente (tabla sales_by_customer).
+ */
+public record CustomerRevenue(Long customerId, String name, String lastname, long invoiceCount, double revenue) {
+
+}
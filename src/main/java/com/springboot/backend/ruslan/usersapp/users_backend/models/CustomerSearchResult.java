@@ -0,0 +1,9 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Resultado de la búsqueda de clientes: los datos del cliente que se muestran en la lista y la relevancia (score)
+ * con la que se ordenan los resultados. Se construye desde el índice en memoria, sin consultar la BBDD.
+ */
+public record CustomerSearchResult(long id, String name, String lastname, String email, String city, double score) {
+
+}
@@ -0,0 +1,10 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Datos de un cliente para los listados, con el número de facturas contado en la BBDD en lugar de las facturas.
+ * lastName mantiene el nombre que tenía la propiedad en el JSON de la entidad Customer.
+ */
+public record CustomerSummary(Long id, String name, String lastName, String email, String phone, String city,
+        String province, String country, Long invoiceCount) {
+
+}
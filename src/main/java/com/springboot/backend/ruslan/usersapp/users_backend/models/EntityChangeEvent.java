@@ -0,0 +1,47 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cambio de una o varias entidades que afecta a las cachés en memoria de todas las instancias.
+ * keys son los valores por los que se indexa cada caché (nombre de usuario o id); una lista vacía significa
+ * que han podido cambiar todas las entidades de ese tipo.
+ *
+ * Los servicios lo publican con ApplicationEventPublisher dentro de su transacción
+ * y CacheInvalidationOutbox lo hace llegar al resto de instancias.
+ */
+public record EntityChangeEvent(Entity entity, List<String> keys) {
+
+    /**
+     * A partir de este número de claves se invalidan todas las entidades del tipo en lugar de una a una.
+     */
+    public static final int MAX_KEYS = 100;
+
+    public enum Entity {
+        USER, PRODUCT, CUSTOMER, ROLE
+    }
+
+    public static EntityChangeEvent users(String... usernames) {
+        return new EntityChangeEvent(Entity.USER, List.of(usernames));
+    }
+
+    public static EntityChangeEvent products(Collection<Long> ids) {
+        return ids.size() > MAX_KEYS
+                ? allProducts()
+                : new EntityChangeEvent(Entity.PRODUCT, ids.stream().map(String::valueOf).distinct().toList());
+    }
+
+    public static EntityChangeEvent allProducts() {
+        return new EntityChangeEvent(Entity.PRODUCT, List.of());
+    }
+
+    public static EntityChangeEvent customer(Long id) {
+        return new EntityChangeEvent(Entity.CUSTOMER, List.of(String.valueOf(id)));
+    }
+
+    public boolean all() {
+        return keys.isEmpty();
+    }
+
+}
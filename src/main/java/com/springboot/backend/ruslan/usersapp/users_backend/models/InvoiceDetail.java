@@ -0,0 +1,18 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Factura completa: la cabecera con el total y sus líneas. Se obtiene con dos consultas fijas
+ * (cabecera y líneas), sea cual sea el número de líneas.
+ */
+public record InvoiceDetail(Long id, String description, String observation, Date dateCreate,
+        Long customerId, Double total, List<InvoiceLine> items) {
+
+    public static InvoiceDetail of(InvoiceSummary summary, List<InvoiceLine> items) {
+        return new InvoiceDetail(summary.id(), summary.description(), summary.observation(), summary.dateCreate(),
+                summary.customerId(), summary.total(), items);
+    }
+
+}
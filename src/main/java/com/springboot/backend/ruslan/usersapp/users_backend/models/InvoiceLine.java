@@ -0,0 +1,8 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Línea de una factura con los datos del producto y el importe (quantity * price) calculado en la BBDD.
+ */
+public record InvoiceLine(Long id, Long productId, String productName, Double price, Integer quantity, Double amount) {
+
+}
@@ -0,0 +1,12 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.Date;
+
+/**
+ * Cabecera de una factura con el número de líneas y el total calculados en la BBDD (SUM(quantity * price)),
+ * sin cargar las líneas ni los productos.
+ */
+public record InvoiceSummary(Long id, String description, String observation, Date dateCreate,
+        Long customerId, Long itemCount, Double total) {
+
+}
@@ -0,0 +1,10 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * LoginRequest contiene solo las credenciales que se envían al hacer login (POST /login).
+ * El filtro de autenticación deserializa el cuerpo de la petición en este record
+ * en lugar de en la entidad User completa.
+ */
+public record LoginRequest(String username, String password) {
+
+}
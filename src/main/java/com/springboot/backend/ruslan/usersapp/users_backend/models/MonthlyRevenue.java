@@ -0,0 +1,24 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.time.YearMonth;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.MonthlySales;
+
+/**
+ * Ventas acumuladas de un mes (tabla sales_by_month).
+ */
+public record MonthlyRevenue(YearMonth month, long invoiceCount, double revenue) {
+
+    public static MonthlyRevenue of(MonthlySales sales) {
+        return new MonthlyRevenue(YearMonth.of(sales.getPeriod() / 100, sales.getPeriod() % 100),
+                sales.getInvoiceCount(), sales.getRevenue());
+    }
+
+    /**
+     * Mes en el formato de la columna period (aaaamm).
+     */
+    public static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+}
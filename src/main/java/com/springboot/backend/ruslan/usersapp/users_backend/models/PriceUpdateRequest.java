@@ -0,0 +1,39 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Cuerpo de PATCH /api/products/prices. Admite una de dos formas:
+ * prices, con el nuevo precio de cada producto ({"prices": [{"id": 1, "price": 9.95}, ...]}),
+ * o percentage, que sube o baja un porcentaje el precio de todos los productos que cumplen el filtro
+ * ({"percentage": 5, "filter": {"minPrice": 10, "nameContains": "monitor"}}).
+ */
+public record PriceUpdateRequest(
+        List<@NotNull @Valid Price> prices,
+        @DecimalMin(value = "-100", inclusive = false) Double percentage,
+        Filter filter) {
+
+    @JsonIgnore
+    @AssertTrue(message = "debe indicar prices o percentage, pero no los dos")
+    public boolean isSingleRule() {
+        return (prices == null) != (percentage == null);
+    }
+
+    public record Price(@NotNull Long id, @NotNull @PositiveOrZero Double price) {
+    }
+
+    /**
+     * Filtro de los productos a los que se aplica el porcentaje; los campos nulos no filtran.
+     */
+    public record Filter(Double minPrice, Double maxPrice, String nameContains) {
+    }
+
+}
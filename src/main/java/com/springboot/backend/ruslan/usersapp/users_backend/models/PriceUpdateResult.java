@@ -0,0 +1,14 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Resultado de PATCH /api/products/prices: número de productos actualizados y, si se enviaron precios por id,
+ * los ids que no existen.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PriceUpdateResult(long updated, List<Long> notFound) {
+
+}
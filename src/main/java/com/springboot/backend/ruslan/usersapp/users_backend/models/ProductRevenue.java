@@ -0,0 +1,8 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Ventas acumuladas de un producto (tabla sales_by_product).
+ */
+public record ProductRevenue(Long productId, String name, long quantity, double revenue) {
+
+}
@@ -0,0 +1,9 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Suma de un grupo de facturas nuevas (por cliente, por producto o por mes) que SalesRollupJob añade
+ * a la tabla de acumulados correspondiente. count es el número de facturas o de unidades según el acumulado.
+ */
+public record SalesAggregate(Long key, Long count, Double amount) {
+
+}
@@ -0,0 +1,72 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Campos de una entidad que se pueden pedir con el parámetro fields de los listados, y el atributo JPA de cada uno.
+ * Solo se admiten los campos de la lista, así que nunca se puede pedir una columna que no deba salir en la API
+ * (por ejemplo la contraseña). El nombre de cada campo es el mismo que tiene en el JSON de la entidad; si el atributo
+ * JPA se llama distinto se indica como "json:atributo".
+ */
+public final class SparseFieldset {
+
+    private static final String ID = "id";
+
+    private final Class<?> entity;
+
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+
+    private SparseFieldset(Class<?> entity) {
+        this.entity = entity;
+    }
+
+    public static SparseFieldset of(Class<?> entity, String... fields) {
+        SparseFieldset fieldset = new SparseFieldset(entity);
+        for (String field : fields) {
+            int separator = field.indexOf(':');
+            if (separator < 0) {
+                fieldset.attributes.put(field, field);
+            } else {
+                fieldset.attributes.put(field.substring(0, separator), field.substring(separator + 1));
+            }
+        }
+        return fieldset;
+    }
+
+    public Class<?> entity() {
+        return entity;
+    }
+
+    public String attribute(String field) {
+        return attributes.get(field);
+    }
+
+    /**
+     * Convierte el parámetro fields ("name,email") en la lista de campos a consultar, sin repetidos y en el orden pedido.
+     * El id se incluye siempre en primer lugar porque es el cursor de la paginación.
+     *
+     * @throws IllegalArgumentException si se pide un campo que no está en la lista
+     */
+    public List<String> parse(String fields) {
+        Set<String> parsed = new LinkedHashSet<>();
+        parsed.add(ID);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!attributes.containsKey(name)) {
+                throw new IllegalArgumentException("campo desconocido: " + name + " (permitidos: "
+                        + String.join(",", attributes.keySet()) + ")");
+            }
+            parsed.add(name);
+        }
+        return new ArrayList<>(parsed);
+    }
+
+}
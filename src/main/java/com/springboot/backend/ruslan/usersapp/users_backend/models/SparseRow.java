@@ -0,0 +1,52 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Fila de un listado con solo los campos pedidos en el parámetro fields.
+ *
+ * Todas las filas de una consulta comparten el mismo array de nombres, ya codificados para JSON (SerializedString),
+ * y los valores van en un array en el mismo orden. El serializador recorre los dos arrays y escribe cada campo
+ * directamente, sin introspección de la clase ni Map intermedio por fila.
+ */
+@JsonSerialize(using = SparseRow.Serializer.class)
+public final class SparseRow {
+
+    private final SerializedString[] names;
+
+    private final Object[] values;
+
+    public SparseRow(SerializedString[] names, Object[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    public Object get(int index) {
+        return values[index];
+    }
+
+    static final class Serializer extends StdSerializer<SparseRow> {
+
+        Serializer() {
+            super(SparseRow.class);
+        }
+
+        @Override
+        public void serialize(SparseRow row, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(row);
+            for (int i = 0; i < row.names.length; i++) {
+                gen.writeFieldName(row.names[i]);
+                //Los serializadores de String, Long, Date... quedan en la caché del provider tras la primera fila
+                provider.defaultSerializeValue(row.values[i], gen);
+            }
+            gen.writeEndObject();
+        }
+    }
+
+}
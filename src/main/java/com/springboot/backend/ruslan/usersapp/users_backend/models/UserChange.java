@@ -0,0 +1,11 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.time.Instant;
+
+/**
+ * Usuario creado o modificado en GET /api/users/changes: los campos de UserSummary y el instante del cambio.
+ */
+public record UserChange(Long id, String name, String lastname, String email, String username, boolean admin,
+        Instant updatedAt) {
+
+}
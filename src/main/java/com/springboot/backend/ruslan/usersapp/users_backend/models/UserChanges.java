@@ -0,0 +1,74 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Respuesta de GET /api/users/changes: usuarios creados o modificados (changed) e ids de usuarios eliminados (deleted)
+ * desde el token since. next es el token que el cliente debe enviar en la siguiente sincronización;
+ * si hasMore es true quedan más cambios y conviene pedirlos enseguida.
+ *
+ * Un mismo usuario puede llegar más de una vez (ver Token), así que el cliente debe aplicar los cambios
+ * sustituyendo por id.
+ */
+public record UserChanges(List<UserChange> changed, List<Long> deleted, String next, boolean hasMore) {
+
+    /**
+     * Posición en una de las dos secuencias de cambios: instante y, para desempatar, id.
+     */
+    public record Cursor(Instant at, long id) implements Comparable<Cursor> {
+
+        public static final Cursor START = new Cursor(Instant.EPOCH, 0);
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byTime = at.compareTo(other.at);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+
+        public static Cursor max(Cursor a, Cursor b) {
+            return a.compareTo(b) >= 0 ? a : b;
+        }
+    }
+
+    /**
+     * Token de sincronización: un cursor para los usuarios cambiados y otro para los borrados.
+     * Se envía como texto opaco "microsUsuarios.idUsuario.microsBorrados.idBorrado".
+     *
+     * Cuando una secuencia está al día su cursor no pasa de ahora menos el margen (app.users.changes.overlap),
+     * porque un cambio con un instante anterior puede estar aún sin confirmar; los cambios de ese margen
+     * se vuelven a enviar en la siguiente sincronización.
+     */
+    public record Token(Cursor users, Cursor deleted) {
+
+        public String encode() {
+            return micros(users.at()) + "." + users.id() + "." + micros(deleted.at()) + "." + deleted.id();
+        }
+
+        /**
+         * @throws IllegalArgumentException si el texto no es un token válido.
+         */
+        public static Token parse(String text) {
+            String[] parts = text.split("\\.");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Token de sincronización no válido: " + text);
+            }
+            try {
+                return new Token(new Cursor(instant(parts[0]), Long.parseLong(parts[1])),
+                        new Cursor(instant(parts[2]), Long.parseLong(parts[3])));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Token de sincronización no válido: " + text);
+            }
+        }
+
+        private static long micros(Instant instant) {
+            return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+        }
+
+        private static Instant instant(String micros) {
+            return Instant.EPOCH.plus(Long.parseLong(micros), ChronoUnit.MICROS);
+        }
+    }
+
+}
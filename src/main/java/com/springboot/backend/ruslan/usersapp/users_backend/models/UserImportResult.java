@@ -0,0 +1,27 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Resultado de importar una línea del fichero NDJSON de POST /api/users/batch.
+ * status es "created" si el usuario se ha guardado (con su id), "invalid" si la línea no es un usuario válido
+ * (con los errores de cada campo) o "error" si no se ha podido guardar en la base de datos.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserImportResult(long line, String status, Long id, String username, Map<String, String> errors) {
+
+    public static UserImportResult created(long line, Long id, String username) {
+        return new UserImportResult(line, "created", id, username, null);
+    }
+
+    public static UserImportResult invalid(long line, String username, Map<String, String> errors) {
+        return new UserImportResult(line, "invalid", null, username, errors);
+    }
+
+    public static UserImportResult error(long line, String username, String message) {
+        return new UserImportResult(line, "error", null, username, Map.of("error", message));
+    }
+
+}
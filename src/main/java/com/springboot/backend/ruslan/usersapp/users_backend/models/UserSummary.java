@@ -0,0 +1,9 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+/**
+ * Datos de un usuario para los listados. Se obtiene con una proyección que solo lee estas columnas:
+ * no incluye la contraseña cifrada ni los roles (admin se calcula en la misma consulta con la fórmula de User).
+ */
+public record UserSummary(Long id, String name, String lastname, String email, String username, boolean admin) {
+
+}
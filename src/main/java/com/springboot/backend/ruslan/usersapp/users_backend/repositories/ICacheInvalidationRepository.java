@@ -0,0 +1,26 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.CacheInvalidation;
+
+public interface ICacheInvalidationRepository extends CrudRepository<CacheInvalidation, Long> {
+
+    List<CacheInvalidation> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    @Query("select coalesce(max(c.id), 0) from CacheInvalidation c")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("delete from CacheInvalidation c where c.createdAt < ?1")
+    int deleteCreatedBefore(Instant before);
+
+}
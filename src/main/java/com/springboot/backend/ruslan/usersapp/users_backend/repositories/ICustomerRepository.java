@@ -1,15 +1,38 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSummary;
 
 public interface ICustomerRepository extends CrudRepository<Customer, Long> {
 
-    //Generar un método que busque por el apellido del cliente
-     Optional<Customer> findByLastname(String lastname );
+    //Busca el primer cliente con ese apellido; puede haber varios clientes con el mismo apellido
+    Optional<Customer> findFirstByLastnameOrderByIdAsc(String lastname);
+
+    //Paginación por cursor: WHERE id > ? ORDER BY id LIMIT ?
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    //Listado de clientes como CustomerSummary: solo las columnas de la proyección y el número de facturas (subconsulta count)
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSummary(
+                c.id, c.name, c.lastname, c.email, c.phone, c.city, c.province, c.country,
+                (select count(i) from Invoice i where i.customer = c))
+            from Customer c order by c.id""")
+    List<CustomerSummary> findAllSummaries();
+
+    //Paginación por cursor de CustomerSummary: WHERE id > ? ORDER BY id LIMIT ?
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSummary(
+                c.id, c.name, c.lastname, c.email, c.phone, c.city, c.province, c.country,
+                (select count(i) from Invoice i where i.customer = c))
+            from Customer c where c.id > :after order by c.id""")
+    List<CustomerSummary> findSummariesAfter(Long after, Limit limit);
    
 
 
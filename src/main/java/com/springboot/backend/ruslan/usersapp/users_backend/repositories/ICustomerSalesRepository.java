@@ -0,0 +1,22 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.CustomerSales;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerRevenue;
+
+public interface ICustomerSalesRepository extends CrudRepository<CustomerSales, Long> {
+
+    //Los clientes con más ventas recorriendo el índice de revenue: solo se leen las filas devueltas
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerRevenue(
+                s.customerId, c.name, c.lastname, s.invoiceCount, s.revenue)
+            from CustomerSales s left join Customer c on c.id = s.customerId
+            order by s.revenue desc, s.customerId desc""")
+    List<CustomerRevenue> findTop(Limit limit);
+
+}
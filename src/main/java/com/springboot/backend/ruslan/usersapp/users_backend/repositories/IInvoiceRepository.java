@@ -0,0 +1,77 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Invoice;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceLine;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SalesAggregate;
+
+public interface IInvoiceRepository extends CrudRepository<Invoice, Long> {
+
+    //Facturas de un cliente con el número de líneas y el total calculados en una sola consulta
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceSummary(
+                i.id, i.description, i.observation, i.dateCreate, i.customer.id, count(it.id), coalesce(sum(it.quantity * p.price), 0.0))
+            from Invoice i left join i.items it left join it.product p
+            where i.customer.id = :customerId
+            group by i.id, i.description, i.observation, i.dateCreate, i.customer.id
+            order by i.id""")
+    List<InvoiceSummary> findSummariesByCustomerId(Long customerId);
+
+    //Cabecera de una factura con el número de líneas y el total
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceSummary(
+                i.id, i.description, i.observation, i.dateCreate, i.customer.id, count(it.id), coalesce(sum(it.quantity * p.price), 0.0))
+            from Invoice i left join i.items it left join it.product p
+            where i.id = :id
+            group by i.id, i.description, i.observation, i.dateCreate, i.customer.id""")
+    Optional<InvoiceSummary> findSummaryById(Long id);
+
+    //Líneas de una factura con el producto y el importe de cada línea
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceLine(
+                it.id, p.id, p.name, p.price, it.quantity, it.quantity * p.price)
+            from Invoice i join i.items it left join it.product p
+            where i.id = :invoiceId
+            order by it.id""")
+    List<InvoiceLine> findLinesByInvoiceId(Long invoiceId);
+
+    //Ids de las facturas posteriores a la marca de agua de los acumulados
+    @Query("select i.id from Invoice i where i.id > :after order by i.id")
+    List<Long> findIdsAfter(Long after, Limit limit);
+
+    //Número de facturas e importe por cliente de las facturas con id en (after, upTo]
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.SalesAggregate(
+                i.customer.id, count(distinct i.id), coalesce(sum(it.quantity * p.price), 0.0))
+            from Invoice i left join i.items it left join it.product p
+            where i.id > :after and i.id <= :upTo and i.customer.id is not null
+            group by i.customer.id""")
+    List<SalesAggregate> sumByCustomer(Long after, Long upTo);
+
+    //Unidades e importe por producto de las facturas con id en (after, upTo]
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.SalesAggregate(
+                p.id, sum(it.quantity), coalesce(sum(it.quantity * p.price), 0.0))
+            from Invoice i join i.items it join it.product p
+            where i.id > :after and i.id <= :upTo
+            group by p.id""")
+    List<SalesAggregate> sumByProduct(Long after, Long upTo);
+
+    //Número de facturas e importe por mes (aaaamm) de las facturas con id en (after, upTo]
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.SalesAggregate(
+                cast(year(i.dateCreate) * 100 + month(i.dateCreate) as Long), count(distinct i.id),
+                coalesce(sum(it.quantity * p.price), 0.0))
+            from Invoice i left join i.items it left join it.product p
+            where i.id > :after and i.id <= :upTo and i.dateCreate is not null
+            group by year(i.dateCreate), month(i.dateCreate)""")
+    List<SalesAggregate> sumByMonth(Long after, Long upTo);
+
+}
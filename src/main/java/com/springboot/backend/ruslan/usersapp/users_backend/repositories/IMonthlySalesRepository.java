@@ -0,0 +1,13 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.MonthlySales;
+
+public interface IMonthlySalesRepository extends CrudRepository<MonthlySales, Integer> {
+
+    List<MonthlySales> findByPeriodBetweenOrderByPeriodAsc(Integer from, Integer to);
+
+}
@@ -1,11 +1,16 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
 
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.repository.CrudRepository;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
 
 public interface IProductRepository extends CrudRepository<Product, Long> {
 
+    //Paginación por cursor: WHERE id > ? ORDER BY id LIMIT ?
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 
 
 }
@@ -0,0 +1,22 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.ProductSales;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.ProductRevenue;
+
+public interface IProductSalesRepository extends CrudRepository<ProductSales, Long> {
+
+    //Los productos con más ventas recorriendo el índice de revenue: solo se leen las filas devueltas
+    @Query("""
+            select new com.springboot.backend.ruslan.usersapp.users_backend.models.ProductRevenue(
+                s.productId, p.name, s.quantity, s.revenue)
+            from ProductSales s left join Product p on p.id = s.productId
+            order by s.revenue desc, s.productId desc""")
+    List<ProductRevenue> findTop(Limit limit);
+
+}
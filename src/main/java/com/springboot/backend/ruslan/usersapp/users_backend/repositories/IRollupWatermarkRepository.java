@@ -0,0 +1,18 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.repository.CrudRepository;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.RollupWatermark;
+
+import jakarta.persistence.LockModeType;
+
+public interface IRollupWatermarkRepository extends CrudRepository<RollupWatermark, String> {
+
+    //SELECT ... FOR UPDATE: la fila queda bloqueada hasta el final de la transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RollupWatermark> findLockedByName(String name);
+
+}
@@ -0,0 +1,29 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.UserTombstone;
+
+public interface IUserTombstoneRepository extends CrudRepository<UserTombstone, Long> {
+
+    /**
+     * Borrados posteriores al cursor (deletedAt, userId), en ese orden. La primera condición es un rango
+     * sobre la primera columna del índice (deleted_at, user_id).
+     */
+    @Query("select t from UserTombstone t where t.deletedAt >= :since and (t.deletedAt > :since or t.userId > :after) "
+            + "order by t.deletedAt, t.userId")
+    List<UserTombstone> findDeletedAfter(Instant since, Long after, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserTombstone t where t.deletedAt < ?1")
+    int deleteDeletedBefore(Instant before);
+
+}
@@ -2,14 +2,24 @@ package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
 
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Role;
 
+import jakarta.persistence.QueryHint;
+
 
 
 public interface RoleRepository extends CrudRepository<Role, Long> {
 
+    //El resultado (el id del rol) se guarda en la caché de consultas y el rol en la caché de segundo nivel;
+    //Hibernate descarta el resultado en cuanto se modifica la tabla roles
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "roles-by-name")
+    })
     Optional<Role>findByName(String name);
 
 }
@@ -1,9 +1,17 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.repositories;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChange;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserSummary;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,4 +26,43 @@ public interface UserRepository extends CrudRepository<User, Long> {
 
     Optional<User> findByUsername(String name);
 
+    /**
+     * Busca un usuario por su nombre de usuario cargando también sus roles en la misma consulta.
+     * Es la consulta que usa el login.
+     */
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
+
+    /**
+     * Listado de usuarios como UserSummary: la consulta solo lee las columnas de la proyección
+     * y el campo admin se calcula con la subconsulta de la fórmula, sin cargar los roles.
+     */
+    @Query("select new com.springboot.backend.ruslan.usersapp.users_backend.models.UserSummary(u.id, u.name, u.lastname, u.email, u.username, u.admin) "
+            + "from User u order by u.id")
+    List<UserSummary> findAllSummaries();
+
+    /**
+     * Paginación por cursor de UserSummary: WHERE id > ? ORDER BY id LIMIT ?, aprovecha el índice de la clave primaria.
+     */
+    @Query("select new com.springboot.backend.ruslan.usersapp.users_backend.models.UserSummary(u.id, u.name, u.lastname, u.email, u.username, u.admin) "
+            + "from User u where u.id > :after order by u.id")
+    List<UserSummary> findSummariesAfter(Long after, Limit limit);
+
+    /**
+     * Usuarios creados o modificados después del cursor (updatedAt, id), en ese orden. La primera condición
+     * es un rango sobre la primera columna del índice (updated_at, id), así que solo se leen las filas cambiadas.
+     */
+    @Query("select new com.springboot.backend.ruslan.usersapp.users_backend.models.UserChange(u.id, u.name, u.lastname, u.email, u.username, u.admin, u.updatedAt) "
+            + "from User u where u.updatedAt >= :since and (u.updatedAt > :since or u.id > :after) order by u.updatedAt, u.id")
+    List<UserChange> findChangesAfter(Instant since, Long after, Limit limit);
+
+    /**
+     * Nombres de usuario de la lista que ya están registrados (la importación masiva los rechaza antes de insertar).
+     */
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(Collection<String> usernames);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
 }
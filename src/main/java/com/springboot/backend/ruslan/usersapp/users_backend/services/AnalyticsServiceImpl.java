@@ -0,0 +1,57 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerRevenue;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.MonthlyRevenue;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.ProductRevenue;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerSalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IMonthlySalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductSalesRepository;
+
+/**
+ * Consultas de ventas sobre las tablas de acumulados que mantiene SalesRollupJob. Ninguna lee facturas:
+ * el coste depende solo del número de filas devueltas, no del número de facturas.
+ * Los datos pueden ir por detrás de las facturas lo que tarde la siguiente ejecución del trabajo (app.analytics.rollup.interval).
+ */
+@Service
+public class AnalyticsServiceImpl implements IAnalyticsService {
+
+    private final ICustomerSalesRepository customerSalesRepository;
+
+    private final IProductSalesRepository productSalesRepository;
+
+    private final IMonthlySalesRepository monthlySalesRepository;
+
+    public AnalyticsServiceImpl(ICustomerSalesRepository customerSalesRepository, IProductSalesRepository productSalesRepository,
+            IMonthlySalesRepository monthlySalesRepository) {
+        this.customerSalesRepository = customerSalesRepository;
+        this.productSalesRepository = productSalesRepository;
+        this.monthlySalesRepository = monthlySalesRepository;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<CustomerRevenue> topCustomers(int limit) {
+        return customerSalesRepository.findTop(Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ProductRevenue> topProducts(int limit) {
+        return productSalesRepository.findTop(Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<MonthlyRevenue> monthly(YearMonth from, YearMonth to) {
+        return monthlySalesRepository.findByPeriodBetweenOrderByPeriodAsc(MonthlyRevenue.period(from), MonthlyRevenue.period(to))
+                .stream().map(MonthlyRevenue::of).toList();
+    }
+
+}
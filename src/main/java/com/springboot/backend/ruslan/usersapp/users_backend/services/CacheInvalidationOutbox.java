@@ -0,0 +1,232 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.CacheInvalidation;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICacheInvalidationRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Invalidación de las cachés en memoria de todas las instancias a través de la tabla cache_invalidations (outbox).
+ *
+ * Cada EntityChangeEvent se guarda como una fila por clave justo antes del commit, en la misma transacción que el cambio:
+ * la fila existe solo si el cambio se ha confirmado, y se hace visible a la vez que él. Fuera de una transacción
+ * (save() de un repositorio ya confirmado) la fila se inserta en el momento.
+ *
+ * Cada instancia lee cada poll-interval las filas con id mayor que su marca de agua y aplica las de otras instancias
+ * con LocalCacheInvalidator (las suyas ya las aplicó el servicio que hizo el cambio) y las avisa a los clientes
+ * conectados a ChangeStream. Los ids son AUTO_INCREMENT
+ * y una fila con id menor puede confirmarse después que otra con id mayor: las filas se aplican en cuanto aparecen,
+ * pero la marca de agua solo avanza por ids consecutivos; un hueco se espera gap-timeout y después se da por
+ * perdido (transacción deshecha). Cada lectura sigue pidiendo lotes de batch-size filas hasta alcanzar la última,
+ * así que un cambio tarda en llegar al resto de instancias, como mucho, poll-interval más lo que tarde su commit
+ * (y la lectura de las filas anteriores si llega en una ráfaga), y el retraso se publica en actuator como cache.invalidation.lag.
+ * Ese límite depende de que el sondeo no espere a otras tareas @Scheduled: spring.task.scheduling.pool.size
+ * tiene un hilo por tarea (SchedulingPoolTest lo comprueba).
+ *
+ * Las filas con más de retention se borran periódicamente. Al arrancar se empieza desde la última fila existente:
+ * las cachés están vacías y no hay nada anterior que invalidar.
+ */
+@Component
+public class CacheInvalidationOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationOutbox.class);
+
+    private final ICacheInvalidationRepository repository;
+
+    private final LocalCacheInvalidator invalidator;
+
+    private final ChangeStream changeStream;
+
+    private final String origin;
+
+    private final int batchSize;
+
+    private final long gapTimeoutNanos;
+
+    private final Duration retention;
+
+    private final Map<EntityChangeEvent.Entity, Timer> lagTimers = new EnumMap<>(EntityChangeEvent.Entity.class);
+
+    private final Map<EntityChangeEvent.Entity, Counter> publishedCounters = new EnumMap<>(EntityChangeEvent.Entity.class);
+
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    //Estado de la lectura; solo se usa con pollLock
+    private Long watermark;
+
+    private final TreeSet<Long> applied = new TreeSet<>();
+
+    private long gapSince = -1;
+
+    public CacheInvalidationOutbox(ICacheInvalidationRepository repository, LocalCacheInvalidator invalidator,
+            ChangeStream changeStream, MeterRegistry registry,
+            @Value("${app.cache.invalidation.node-id:}") String nodeId,
+            @Value("${app.cache.invalidation.batch-size:500}") int batchSize,
+            @Value("${app.cache.invalidation.gap-timeout:PT10S}") Duration gapTimeout,
+            @Value("${app.cache.invalidation.retention:PT1H}") Duration retention) {
+        this.repository = repository;
+        this.invalidator = invalidator;
+        this.changeStream = changeStream;
+        this.origin = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.retention = retention;
+        for (EntityChangeEvent.Entity entity : EntityChangeEvent.Entity.values()) {
+            String tag = entity.name().toLowerCase();
+            lagTimers.put(entity, Timer.builder("cache.invalidation.lag")
+                    .description("Tiempo desde que se confirma un cambio hasta que se invalida en esta instancia")
+                    .tag("entity", tag)
+                    .register(registry));
+            publishedCounters.put(entity, Counter.builder("cache.invalidation.published")
+                    .description("Invalidaciones publicadas por esta instancia para el resto")
+                    .tag("entity", tag)
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Guarda el cambio en la tabla dentro de la transacción que lo ha hecho, justo antes del commit.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void publish(EntityChangeEvent event) {
+        Instant now = Instant.now();
+        List<CacheInvalidation> rows = event.all()
+                ? List.of(new CacheInvalidation(event.entity(), null, origin, now))
+                : event.keys().stream().map(key -> new CacheInvalidation(event.entity(), key, origin, now)).toList();
+        repository.saveAll(rows);
+        publishedCounters.get(event.entity()).increment(rows.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduledPoll();
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval:PT1S}",
+            initialDelayString = "${app.cache.invalidation.poll-interval:PT1S}")
+    public void scheduledPoll() {
+        try {
+            poll();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se han podido leer las invalidaciones de caché: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Aplica las invalidaciones nuevas de otras instancias y devuelve cuántas filas nuevas se han leído.
+     */
+    public int poll() {
+        //ReentrantLock y no synchronized: dentro se consulta la BBDD y no debe fijar el hilo portador de un hilo virtual
+        pollLock.lock();
+        try {
+            if (watermark == null) {
+                watermark = repository.findMaxId();
+                log.info("Invalidaciones de caché entre instancias activas desde el id {} (instancia {})", watermark, origin);
+                return 0;
+            }
+
+            //Se leen lotes hasta llegar a uno incompleto, para que una ráfaga de cambios llegue entera en este mismo
+            //ciclo y no a razón de batch-size filas por poll-interval. El primer lote empieza en la marca de agua:
+            //las filas ya aplicadas por encima de un hueco se vuelven a leer y se amplía el límite para que siempre
+            //haya filas nuevas; los siguientes continúan desde la última fila leída.
+            long after = watermark;
+            int limit = batchSize + applied.size();
+            int count = 0;
+            while (true) {
+                List<CacheInvalidation> rows = repository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+                Instant now = Instant.now();
+                for (CacheInvalidation row : rows) {
+                    after = row.getId();
+                    if (!applied.add(row.getId())) {
+                        continue;
+                    }
+                    count++;
+                    if (!origin.equals(row.getOrigin())) {
+                        apply(row, now);
+                    }
+                }
+                if (rows.size() < limit) {
+                    break;
+                }
+                limit = batchSize;
+            }
+            advance();
+            return count;
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    private void apply(CacheInvalidation row, Instant now) {
+        try {
+            invalidator.apply(row.getEntity(), row.getKey());
+        } catch (RuntimeException e) {
+            log.warn("No se ha podido invalidar {} {}: {}", row.getEntity(), row.getKey(), e.getMessage());
+        }
+        changeStream.publish(row.getEntity(), row.getKey());
+        Duration lag = Duration.between(row.getCreatedAt(), now);
+        lagTimers.get(row.getEntity()).record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    /**
+     * Avanza la marca de agua por los ids consecutivos ya aplicados. Ante un hueco espera gap-timeout
+     * desde que lo ve por primera vez y después lo salta hasta el siguiente id aplicado.
+     */
+    private void advance() {
+        while (!applied.isEmpty()) {
+            long first = applied.first();
+            if (first != watermark + 1) {
+                long now = System.nanoTime();
+                if (gapSince < 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < gapTimeoutNanos) {
+                    return;
+                }
+                log.debug("Invalidaciones {} a {} dadas por perdidas", watermark + 1, first - 1);
+            }
+            applied.pollFirst();
+            watermark = first;
+            gapSince = -1;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.cleanup-interval:PT10M}",
+            initialDelayString = "${app.cache.invalidation.cleanup-interval:PT10M}")
+    public void cleanup() {
+        try {
+            int deleted = repository.deleteCreatedBefore(Instant.now().minus(retention));
+            if (deleted > 0) {
+                log.debug("Borradas {} invalidaciones de caché antiguas", deleted);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se han podido borrar las invalidaciones de caché antiguas: {}", e.getMessage());
+        }
+    }
+
+}
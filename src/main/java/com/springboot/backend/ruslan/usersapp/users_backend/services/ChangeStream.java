@@ -0,0 +1,421 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Canal Server-Sent Events (GET /api/events) que avisa a los clientes de los cambios en usuarios, clientes y productos,
+ * para que refresquen sus listados solo cuando algo cambia en lugar de consultarlos periódicamente.
+ *
+ * Cada aviso es un evento "change" con un JSON mínimo: {"entity":"product","id":"5"}, o sin id si han podido cambiar
+ * todas las entidades del tipo. Los usuarios se identifican por su username ({"entity":"user","username":"juanp"}),
+ * que es la clave con la que se publican sus cambios. Llegan los cambios de esta instancia (después del commit) y los de las demás
+ * (los lee CacheInvalidationOutbox de la tabla cache_invalidations).
+ *
+ * Una conexión abierta no ocupa ningún hilo: la petición queda en modo asíncrono y los avisos se escriben desde
+ * un pool pequeño de sender-threads hilos. Cada suscriptor tiene su propio buffer acotado a buffer-size avisos;
+ * los avisos repetidos de la misma entidad se agrupan en uno y, si el buffer se llena porque el cliente es lento,
+ * los avisos pendientes de ese tipo se sustituyen por uno solo sin id. Si un suscriptor no recibe nada durante
+ * heartbeat-interval se le envía un comentario SSE, que mantiene viva la conexión y detecta los clientes desconectados.
+ *
+ * El pool es de hilos de plataforma: SseEmitter escribe dentro de un bloque synchronized y un hilo virtual bloqueado
+ * en esa escritura quedaría fijado a su hilo portador.
+ *
+ * Las escrituras son bloqueantes: un cliente que deja de leer bloquea el hilo que le escribe hasta el timeout de escritura
+ * del socket (server.tomcat.connection-timeout). Para que eso no retrase a los demás, cada send-timeout se revisan los
+ * envíos en curso y el suscriptor cuyo envío dura más se descarta (no recibe más avisos y su conexión se cierra en cuanto
+ * termine la escritura); mientras su hilo siga bloqueado el pool crece en uno, así que siempre quedan sender-threads
+ * hilos libres para el resto. Cada usuario puede tener como mucho max-subscribers-per-user conexiones abiertas.
+ */
+@Component
+public class ChangeStream implements DisposableBean {
+
+    private static final String EVENT_NAME = "change";
+
+    /**
+     * Tipos a los que se puede suscribir un cliente. Los cambios de ROLE solo invalidan cachés y no se avisan.
+     */
+    public static final Set<EntityChangeEvent.Entity> ENTITIES = Collections.unmodifiableSet(
+            EnumSet.of(EntityChangeEvent.Entity.USER, EntityChangeEvent.Entity.CUSTOMER, EntityChangeEvent.Entity.PRODUCT));
+
+    //Estados de Subscriber.sendStarted además del instante de inicio de un envío
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private static final long STALLED = Long.MIN_VALUE + 1;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    //Plazas ocupadas en total y por usuario: se reservan antes de añadir el suscriptor para que dos peticiones
+    //simultáneas no superen max-subscribers ni max-subscribers-per-user, y se liberan al quitarlo de subscribers
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    private final Map<String, Integer> reservedByOwner = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor senders;
+
+    private final int senderThreads;
+
+    //Hilos de envío bloqueados en un suscriptor descartado por lento; el pool crece en otros tantos
+    private final AtomicInteger stalledSenders = new AtomicInteger();
+
+    private final ReentrantLock resizeLock = new ReentrantLock();
+
+    private final int bufferSize;
+
+    private final long heartbeatNanos;
+
+    private final Duration timeout;
+
+    private final int maxSubscribers;
+
+    private final int maxSubscribersPerUser;
+
+    private final long sendTimeoutNanos;
+
+    private final Counter coalesced;
+
+    private final Counter dropped;
+
+    public ChangeStream(MeterRegistry registry,
+            @Value("${app.events.buffer-size:256}") int bufferSize,
+            @Value("${app.events.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+            @Value("${app.events.timeout:PT30M}") Duration timeout,
+            @Value("${app.events.sender-threads:2}") int senderThreads,
+            @Value("${app.events.max-subscribers:10000}") int maxSubscribers,
+            @Value("${app.events.max-subscribers-per-user:5}") int maxSubscribersPerUser,
+            @Value("${app.events.send-timeout:PT5S}") Duration sendTimeout) {
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> Thread.ofPlatform().name("sse-sender-" + threads.incrementAndGet()).daemon().unstarted(task));
+        this.senders.allowCoreThreadTimeOut(true);
+        this.senderThreads = senderThreads;
+        this.bufferSize = bufferSize;
+        this.heartbeatNanos = heartbeatInterval.toNanos();
+        this.timeout = timeout;
+        this.maxSubscribers = maxSubscribers;
+        this.maxSubscribersPerUser = maxSubscribersPerUser;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.coalesced = Counter.builder("events.coalesced")
+                .description("Avisos de cambios agrupados en uno sin id porque el buffer de un suscriptor estaba lleno")
+                .register(registry);
+        this.dropped = Counter.builder("events.dropped")
+                .description("Suscriptores descartados porque un envío ha tardado más de send-timeout")
+                .register(registry);
+        registry.gauge("events.subscribers", subscribers, Set::size);
+    }
+
+    /**
+     * true si el usuario ya tiene abiertas max-subscribers-per-user conexiones.
+     */
+    public boolean atUserLimit(String owner) {
+        return reservedByOwner.getOrDefault(owner, 0) >= maxSubscribersPerUser;
+    }
+
+    /**
+     * Abre una suscripción del usuario owner a los cambios de los tipos indicados (todos los de ENTITIES si está vacío).
+     * @return null si ya se ha alcanzado max-subscribers o max-subscribers-per-user.
+     */
+    public SseEmitter subscribe(String owner, Set<EntityChangeEvent.Entity> entities) {
+        if (!reserve(owner)) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(owner, emitter, entities.isEmpty() ? EnumSet.copyOf(ENTITIES) : EnumSet.copyOf(entities));
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Ocupa una plaza del usuario. Se incrementa y después se comprueba, deshaciendo el incremento si se ha pasado
+     * del límite: así la comprobación y la reserva son una sola operación atómica.
+     */
+    private boolean reserve(String owner) {
+        if (reserved.incrementAndGet() > maxSubscribers) {
+            reserved.decrementAndGet();
+            return false;
+        }
+        if (reservedByOwner.merge(owner, 1, Integer::sum) > maxSubscribersPerUser) {
+            release(owner);
+            return false;
+        }
+        return true;
+    }
+
+    private void release(String owner) {
+        reservedByOwner.computeIfPresent(owner, (key, count) -> count > 1 ? count - 1 : null);
+        reserved.decrementAndGet();
+    }
+
+    /**
+     * Quita el suscriptor y libera su plaza. Solo la primera llamada para cada suscriptor la libera,
+     * aunque se cierre a la vez por timeout, por error de envío y por lento.
+     */
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            release(subscriber.owner);
+        }
+    }
+
+    /**
+     * Cambios confirmados en esta instancia. Los servicios publican el EntityChangeEvent dentro de la transacción,
+     * así que el aviso sale después del commit (o en el momento si no había transacción).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChange(EntityChangeEvent event) {
+        if (event.all()) {
+            publish(event.entity(), null);
+        } else {
+            event.keys().forEach(key -> publish(event.entity(), key));
+        }
+    }
+
+    /**
+     * Envía un aviso a todos los suscriptores del tipo. key es el id de la entidad (el username en los usuarios), o null para todas.
+     */
+    public void publish(EntityChangeEvent.Entity entity, String key) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        //El JSON se genera una sola vez para todos los suscriptores
+        String type = entity.name().toLowerCase();
+        String json = key == null
+                ? "{\"entity\":\"" + type + "\"}"
+                : "{\"entity\":\"" + type + "\",\"" + (entity == EntityChangeEvent.Entity.USER ? "username" : "id")
+                        + "\":\"" + key.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+        Notification notification = new Notification(entity, key, json);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.entities.contains(entity)) {
+                subscriber.enqueue(notification);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (now - subscriber.lastSent >= heartbeatNanos) {
+                subscriber.enqueueHeartbeat();
+            }
+        }
+    }
+
+    /**
+     * Descarta los suscriptores cuyo envío en curso dura más de send-timeout. No se llama a su SseEmitter
+     * (send y complete comparten el mismo monitor y esperarían a la escritura bloqueada): se quitan de la lista
+     * para que no reciban más avisos y el hilo que sigue escribiendo cierra la conexión cuando termina.
+     */
+    @Scheduled(fixedDelayString = "${app.events.send-timeout:PT5S}")
+    public void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStarted.get();
+            //El compareAndSet decide si el envío lo termina antes el hilo que escribe o lo marca antes este
+            if (started != IDLE && started != STALLED && now - started > sendTimeoutNanos
+                    && subscriber.sendStarted.compareAndSet(started, STALLED)) {
+                remove(subscriber);
+                dropped.increment();
+                stalledSenders.incrementAndGet();
+                resize();
+            }
+        }
+    }
+
+    /**
+     * Ajusta el pool a sender-threads hilos más uno por cada hilo bloqueado en un suscriptor descartado.
+     */
+    private void resize() {
+        resizeLock.lock();
+        try {
+            int size = senderThreads + stalledSenders.get();
+            //El máximo nunca puede quedar por debajo del núcleo: al crecer se sube primero y al decrecer después
+            if (size > senders.getMaximumPoolSize()) {
+                senders.setMaximumPoolSize(size);
+                senders.setCorePoolSize(size);
+            } else {
+                senders.setCorePoolSize(size);
+                senders.setMaximumPoolSize(size);
+            }
+        } finally {
+            resizeLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.forEach(this::remove);
+    }
+
+    private record Notification(EntityChangeEvent.Entity entity, String key, String json) {
+    }
+
+    /**
+     * Una conexión SSE con su buffer de avisos pendientes. enqueue se llama desde los hilos que publican cambios
+     * y drain desde el pool de envío; como mucho hay una tarea de envío por suscriptor a la vez (scheduled).
+     */
+    private final class Subscriber {
+
+        private final String owner;
+
+        private final SseEmitter emitter;
+
+        private final Set<EntityChangeEvent.Entity> entities;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        //Avisos pendientes por entidad e id: un segundo cambio de la misma entidad no añade otro aviso
+        private final Map<String, Notification> pending = new LinkedHashMap<>();
+
+        //Tipos con un aviso pendiente sin id (todas las entidades), por un cambio masivo o porque se llenó el buffer
+        private final Set<EntityChangeEvent.Entity> overflowed = EnumSet.noneOf(EntityChangeEvent.Entity.class);
+
+        private boolean heartbeat;
+
+        private boolean scheduled;
+
+        private volatile long lastSent = System.nanoTime();
+
+        //Inicio del envío en curso (System.nanoTime()), IDLE si no se está enviando nada o STALLED si dropStalled
+        //lo ha descartado mientras enviaba
+        private final AtomicLong sendStarted = new AtomicLong(IDLE);
+
+        Subscriber(String owner, SseEmitter emitter, Set<EntityChangeEvent.Entity> entities) {
+            this.owner = owner;
+            this.emitter = emitter;
+            this.entities = entities;
+        }
+
+        void enqueue(Notification notification) {
+            lock.lock();
+            try {
+                if (overflowed.contains(notification.entity())) {
+                    return; //Ya hay pendiente un aviso de todo el tipo
+                }
+                if (notification.key() == null) {
+                    overflowed.add(notification.entity());
+                    pending.values().removeIf(n -> n.entity() == notification.entity());
+                } else {
+                    pending.put(notification.entity() + ":" + notification.key(), notification);
+                    if (pending.size() > bufferSize) {
+                        overflowed.add(notification.entity());
+                        pending.values().removeIf(n -> n.entity() == notification.entity());
+                        coalesced.increment();
+                    }
+                }
+                schedule();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void enqueueHeartbeat() {
+            lock.lock();
+            try {
+                heartbeat = true;
+                schedule();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //Solo con lock
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                senders.execute(this::drain);
+            }
+        }
+
+        /**
+         * Termina el envío que empezó en started. Devuelve false si dropStalled lo ha descartado entretanto:
+         * el hilo ya no cuenta como bloqueado y el pool vuelve a su tamaño.
+         */
+        private boolean finishSend(long started) {
+            if (sendStarted.compareAndSet(started, IDLE)) {
+                return true;
+            }
+            stalledSenders.decrementAndGet();
+            resize();
+            return false;
+        }
+
+        private void drain() {
+            while (true) {
+                List<String> batch = new ArrayList<>();
+                boolean sendHeartbeat;
+                lock.lock();
+                try {
+                    for (EntityChangeEvent.Entity entity : overflowed) {
+                        batch.add("{\"entity\":\"" + entity.name().toLowerCase() + "\"}");
+                    }
+                    pending.values().forEach(notification -> batch.add(notification.json()));
+                    sendHeartbeat = heartbeat && batch.isEmpty();
+                    overflowed.clear();
+                    pending.clear();
+                    heartbeat = false;
+                    if (batch.isEmpty() && !sendHeartbeat) {
+                        scheduled = false;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                long started = System.nanoTime();
+                sendStarted.set(started);
+                try {
+                    if (sendHeartbeat) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    for (String json : batch) {
+                        emitter.send(SseEmitter.event().name(EVENT_NAME).data(json));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    //Cliente desconectado o conexión ya cerrada: se descarta el suscriptor
+                    finishSend(started);
+                    remove(this);
+                    emitter.completeWithError(e);
+                    return; //scheduled queda a true: no se vuelve a programar ningún envío
+                }
+                if (!finishSend(started)) {
+                    //Descartado por lento mientras escribía: se cierra la conexión y el cliente tendrá que reconectarse
+                    emitter.complete();
+                    return;
+                }
+                lastSent = System.nanoTime();
+            }
+        }
+    }
+
+}
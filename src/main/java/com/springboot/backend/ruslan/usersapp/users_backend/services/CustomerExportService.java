@@ -0,0 +1,17 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface CustomerExportService {
+
+    enum Format {
+        CSV, NDJSON
+    }
+
+    /**
+     * Escribe todos los clientes en out en el formato indicado, fila a fila y sin cargarlos en memoria.
+     */
+    void export(Format format, OutputStream out) throws IOException;
+
+}
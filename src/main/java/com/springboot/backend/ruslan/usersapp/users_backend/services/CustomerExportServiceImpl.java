@@ -0,0 +1,134 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerExportRow;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Exportación de clientes en CSV o NDJSON con memoria constante.
+ *
+ * Los clientes se leen con un cursor de Hibernate de solo avance (ScrollMode.FORWARD_ONLY) y un fetch size fijo,
+ * y cada fila se escribe en la respuesta en cuanto se lee. La consulta es una proyección a CustomerExportRow,
+ * así que no se crean entidades Customer en el contexto de persistencia ni se cargan las facturas.
+ * En MySQL el cursor real necesita useCursorFetch=true en la URL de conexión; sin él el driver lee todo el resultado.
+ */
+@Service
+public class CustomerExportServiceImpl implements CustomerExportService {
+
+    private static final String QUERY = "select new com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerExportRow("
+            + "c.id, c.name, c.lastname, c.email, c.phone, c.address, c.city, c.province, c.postalCode, c.country) "
+            + "from Customer c order by c.id";
+
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    //Teléfonos (+34 600 000 000) y números negativos: sin letras ni operadores no pueden llamar a funciones ni a celdas
+    private static final Pattern NUMERIC = Pattern.compile("[+-][0-9 ().-]*[0-9][0-9 ().-]*");
+
+    private static final String CSV_HEADER = "id,name,lastname,email,phone,address,city,province,postal_code,country";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectWriter rowWriter;
+
+    private final int fetchSize;
+
+    public CustomerExportServiceImpl(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Value("${app.customers.export.fetch-size:1000}") int fetchSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rowWriter = objectMapper.writerFor(CustomerExportRow.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Session session = entityManager.unwrap(Session.class);
+                try (ScrollableResults<CustomerExportRow> rows = session.createSelectionQuery(QUERY, CustomerExportRow.class)
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true)
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (rows.next()) {
+                        write(format, rows.get(), writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void write(Format format, CustomerExportRow row, Writer writer) throws IOException {
+        if (format == Format.NDJSON) {
+            rowWriter.writeValue(writer, row);
+            writer.write('\n');
+            return;
+        }
+        writer.write(String.valueOf(row.id()));
+        for (Object value : new Object[] { row.name(), row.lastname(), row.email(), row.phone(), row.address(),
+                row.city(), row.province(), row.postalCode(), row.country() }) {
+            writer.write(',');
+            writeCsv(writer, value);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Escribe un valor CSV (RFC 4180): entre comillas si contiene comas, comillas o saltos de línea.
+     * Un texto que empieza por =, +, -, @, tabulador o retorno de carro se precede de una comilla simple
+     * para que Excel o LibreOffice no lo interpreten como una fórmula al abrir el fichero (inyección CSV).
+     * Los que empiezan por + o - y solo tienen cifras, espacios, puntos, guiones y paréntesis (teléfonos internacionales,
+     * números negativos) se dejan como están: no pueden ejecutar nada y la comilla cambiaría el dato.
+     */
+    static void writeCsv(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence && !text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0
+                && !NUMERIC.matcher(text).matches()) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+}
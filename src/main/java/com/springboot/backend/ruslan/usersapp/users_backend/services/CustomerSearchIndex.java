@@ -0,0 +1,250 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSearchResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerRepository;
+
+/**
+ * Índice en memoria de trigramas sobre el nombre, apellido, email y ciudad de los clientes.
+ *
+ * Cada texto se normaliza (minúsculas, sin tildes, solo letras y dígitos) y cada palabra se divide en trigramas
+ * con relleno al principio ("  ga", " gar", "gar", ...), de modo que una búsqueda encuentra coincidencias exactas,
+ * por prefijo y aproximadas (errores de escritura). Por cada trigrama se guarda la lista de ids de clientes que lo contienen.
+ *
+ * El índice se construye al arrancar en segundo plano, leyendo los clientes por páginas, y se actualiza
+ * de forma incremental desde CustomerServiceImpl.saveCust. Las listas de ids solo crecen: cuando un cliente cambia,
+ * los trigramas que ya no tiene quedan como entradas obsoletas que se descartan al puntuar, porque la puntuación
+ * se calcula siempre con los trigramas actuales del cliente.
+ */
+@Component
+public class CustomerSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSearchIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    /**
+     * Proporción mínima de trigramas de la búsqueda que debe contener un cliente para aparecer en los resultados.
+     */
+    private static final double MIN_SIMILARITY = 0.3;
+
+    /**
+     * Número máximo de resultados ordenados que se pueden recorrer paginando.
+     */
+    private static final int MAX_RESULTS = 10_000;
+
+    private final ICustomerRepository customerRepository;
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    private final Map<Long, Postings> postings = new ConcurrentHashMap<>();
+
+    public CustomerSearchIndex(ICustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Thread.ofPlatform().name("customer-search-index").daemon().start(() -> {
+            try {
+                long after = 0;
+                List<Customer> page;
+                do {
+                    page = customerRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(LOAD_PAGE_SIZE));
+                    page.forEach(this::indexIfAbsent);
+                    if (!page.isEmpty()) {
+                        after = page.get(page.size() - 1).getId();
+                    }
+                } while (page.size() == LOAD_PAGE_SIZE);
+                log.info("Índice de búsqueda de clientes construido con {} clientes", documents.size());
+            } catch (RuntimeException e) {
+                log.warn("No se ha podido construir el índice de búsqueda de clientes: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Añade o actualiza un cliente en el índice.
+     */
+    public synchronized void index(Customer customer) {
+        Document document = Document.of(customer);
+        Document previous = documents.put(document.id(), document);
+        for (long gram : document.grams()) {
+            if (previous == null || Arrays.binarySearch(previous.grams(), gram) < 0) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(document.id());
+            }
+        }
+    }
+
+    private synchronized void indexIfAbsent(Customer customer) {
+        if (!documents.containsKey(customer.getId())) {
+            index(customer);
+        }
+    }
+
+    /**
+     * Busca clientes parecidos al texto q y devuelve la página indicada de los resultados ordenados por relevancia.
+     * La relevancia es la proporción de trigramas de la búsqueda que contiene el cliente, con una bonificación
+     * si alguna palabra del cliente empieza por alguna palabra de la búsqueda.
+     */
+    public List<CustomerSearchResult> search(String q, int page, int size) {
+        String[] terms = terms(q);
+        long[] queryGrams = grams(terms);
+        if (queryGrams.length == 0) {
+            return List.of();
+        }
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (long gram : queryGrams) {
+            Postings list = postings.get(gram);
+            if (list != null) {
+                list.forEach(id -> counts.merge(id, 1, Integer::sum));
+            }
+        }
+
+        int wanted = (int) Math.min((Math.max(0, page) + 1L) * size, MAX_RESULTS);
+        int minMatches = (int) Math.ceil(queryGrams.length * MIN_SIMILARITY);
+        PriorityQueue<CustomerSearchResult> top = new PriorityQueue<>(RANKING.reversed());
+        counts.forEach((id, count) -> {
+            Document document = documents.get(id);
+            if (count < minMatches || document == null) {
+                return;
+            }
+            int matches = 0;
+            for (long gram : queryGrams) {
+                if (Arrays.binarySearch(document.grams(), gram) >= 0) {
+                    matches++;
+                }
+            }
+            if (matches < minMatches) {
+                return;
+            }
+            double score = (double) matches / queryGrams.length + (document.hasPrefix(terms) ? 1.0 : 0.0);
+            top.add(document.toResult(score));
+            if (top.size() > wanted) {
+                top.poll();
+            }
+        });
+
+        List<CustomerSearchResult> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        //En long: con un page muy grande page * size desborda un int
+        long offset = (long) Math.max(0, page) * size;
+        if (offset >= ranked.size()) {
+            return List.of();
+        }
+        return ranked.subList((int) offset, ranked.size());
+    }
+
+    private static final Comparator<CustomerSearchResult> RANKING = Comparator
+            .comparingDouble(CustomerSearchResult::score).reversed()
+            .thenComparing(CustomerSearchResult::id);
+
+    static String[] terms(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized)).filter(term -> !term.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * Trigramas distintos y ordenados de las palabras, codificados cada uno en un long (3 caracteres de 16 bits).
+     */
+    static long[] grams(String... terms) {
+        List<Long> grams = new ArrayList<>();
+        for (String term : terms) {
+            String padded = "  " + term + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        return grams.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    private record Document(long id, String name, String lastname, String email, String city, String[] terms, long[] grams) {
+
+        static Document of(Customer customer) {
+            String text = String.join(" ", nullToEmpty(customer.getName()), nullToEmpty(customer.getLastName()),
+                    nullToEmpty(customer.getEmail()), nullToEmpty(customer.getCity()));
+            String[] terms = CustomerSearchIndex.terms(text);
+            return new Document(customer.getId(), customer.getName(), customer.getLastName(), customer.getEmail(),
+                    customer.getCity(), terms, CustomerSearchIndex.grams(terms));
+        }
+
+        boolean hasPrefix(String[] queryTerms) {
+            for (String queryTerm : queryTerms) {
+                for (String term : terms) {
+                    if (term.startsWith(queryTerm)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        CustomerSearchResult toResult(double score) {
+            return new CustomerSearchResult(id, name, lastname, email, city, score);
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+
+    /**
+     * Lista de ids de un trigrama. Solo la modifica un escritor (los métodos de escritura del índice están sincronizados)
+     * y se puede leer sin bloqueo: el array se publica antes que el tamaño, así que un lector siempre ve un array
+     * que contiene al menos los size elementos que ha leído.
+     */
+    private static final class Postings {
+
+        private volatile long[] ids = new long[4];
+
+        private volatile int size;
+
+        void add(long id) {
+            long[] current = ids;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = id;
+            ids = current;
+            size = size + 1;
+        }
+
+        void forEach(LongConsumer action) {
+            int count = size;
+            long[] current = ids;
+            for (int i = 0; i < count; i++) {
+                action.accept(current[i]);
+            }
+        }
+    }
+
+}
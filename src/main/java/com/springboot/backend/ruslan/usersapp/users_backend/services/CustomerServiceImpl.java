@@ -3,42 +3,97 @@ package com.springboot.backend.ruslan.usersapp.users_backend.services;
 import java.util.List;
 import java.util.Optional;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSearchResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseFieldset;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
 import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerRepository;
 
 @Service
 public class CustomerServiceImpl implements ICustomerService {
 
-    @Autowired
-    private ICustomerRepository customerRepository;
+    //Campos que se pueden pedir con fields; las facturas no están
+    private static final SparseFieldset FIELDS = SparseFieldset.of(Customer.class,
+            "id", "name", "lastName:lastname", "email", "phone", "address", "city", "province", "postalCode", "country");
+
+    private final ICustomerRepository customerRepository;
+
+    private final CustomerSearchIndex searchIndex;
     
 
-    public CustomerServiceImpl(ICustomerRepository customerRepository) {
+    private final SparseFieldsQuery sparseFieldsQuery;
+
+    private final ApplicationEventPublisher events;
+
+    public CustomerServiceImpl(ICustomerRepository customerRepository, CustomerSearchIndex searchIndex, SparseFieldsQuery sparseFieldsQuery,
+            ApplicationEventPublisher events) {
         this.customerRepository = customerRepository;
+        this.searchIndex = searchIndex;
+        this.sparseFieldsQuery = sparseFieldsQuery;
+        this.events = events;
     }
 
 
+    //Los listados usan CustomerSummary: no se cargan las facturas, solo se cuentan en la misma consulta
     @Transactional(readOnly = true)
     @Override
-    public List<Customer> findALL() {
+    public List<CustomerSummary> findALL() {
         
-       return ((List<Customer>)this.customerRepository.findAll()).stream().toList();
+       return this.customerRepository.findAllSummaries();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<CustomerSummary> findPage(Long after, int limit) {
+
+        List<CustomerSummary> customers = this.customerRepository.findSummariesAfter(CursorPage.afterOf(after), Limit.of(limit));
+        return CursorPage.of(customers, limit, CustomerSummary::id);
+    }
+
+    /**
+     * Listado con solo los campos pedidos: SELECT de esas columnas (Criteria de tuplas), sin cargar entidades.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<SparseRow> findAllFields(String fields) {
+        return sparseFieldsQuery.find(FIELDS, FIELDS.parse(fields), null, null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<SparseRow> findPageFields(String fields, Long after, int limit) {
+        List<SparseRow> rows = sparseFieldsQuery.find(FIELDS, FIELDS.parse(fields), CursorPage.afterOf(after), limit);
+        return CursorPage.of(rows, limit, row -> (Long) row.get(0));
     }
      
 
     @Override
     public Optional<Customer> findByLastname(String lastname) {
-        return this.customerRepository.findByLastname(lastname);
+        return this.customerRepository.findFirstByLastnameOrderByIdAsc(lastname);
+    }
+
+
+    @Override
+    public List<CustomerSearchResult> search(String q, int page, int size) {
+        return this.searchIndex.search(q, page, size);
     }
 
 
     @Override
     public Customer saveCust(Customer customer) {
-        return this.customerRepository.save(customer);
+        //save() confirma su propia transacción, así que el índice solo ve clientes ya guardados
+        Customer saved = this.customerRepository.save(customer);
+        this.searchIndex.index(saved);
+        this.events.publishEvent(EntityChangeEvent.customer(saved.getId())); //Resto de instancias
+        return saved;
     }
 
   
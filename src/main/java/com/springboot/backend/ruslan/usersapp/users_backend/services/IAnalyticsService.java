@@ -0,0 +1,18 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerRevenue;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.MonthlyRevenue;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.ProductRevenue;
+
+public interface IAnalyticsService {
+
+    List<CustomerRevenue> topCustomers(int limit);
+
+    List<ProductRevenue> topProducts(int limit);
+
+    List<MonthlyRevenue> monthly(YearMonth from, YearMonth to);
+
+}
@@ -4,13 +4,25 @@ import java.util.List;
 import java.util.Optional;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSearchResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
 
 public interface ICustomerService {
 
-    List<Customer> findALL();
+    List<CustomerSummary> findALL();
+
+    CursorPage<CustomerSummary> findPage(Long after, int limit);
+
+    List<SparseRow> findAllFields(String fields); //Solo los campos pedidos; IllegalArgumentException si alguno no existe
+
+    CursorPage<SparseRow> findPageFields(String fields, Long after, int limit);
     
     Optional<Customer> findByLastname(String lastname);
 
+    List<CustomerSearchResult> search(String q, int page, int size);
+
     Customer saveCust(Customer customer);    
 
 }
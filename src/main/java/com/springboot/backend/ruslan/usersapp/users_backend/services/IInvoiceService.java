@@ -0,0 +1,15 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceDetail;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceSummary;
+
+public interface IInvoiceService {
+
+    Optional<List<InvoiceSummary>> findByCustomerId(Long customerId);
+
+    Optional<InvoiceDetail> findById(Long id);
+
+}
@@ -4,11 +4,19 @@ import java.util.List;
 import java.util.Optional;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
 
 public interface IProductService {
 
         List<Product>  findALL();
 
+        CursorPage<Product> findPage(Long after, int limit);
+
+        List<SparseRow> findAllFields(String fields); //Solo los campos pedidos; IllegalArgumentException si alguno no existe
+
+        CursorPage<SparseRow> findPageFields(String fields, Long after, int limit);
+
         Optional<Product>findById(Long id);
 
         Product saveProd(Product product);
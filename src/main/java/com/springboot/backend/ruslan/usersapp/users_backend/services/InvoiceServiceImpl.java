@@ -0,0 +1,54 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceDetail;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.InvoiceSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IInvoiceRepository;
+
+/**
+ * Consultas de facturas mediante proyecciones: los totales se calculan en la BBDD y no se cargan
+ * las entidades Invoice, ItemInvoice ni Product, así que el número de consultas no depende
+ * del número de facturas ni de líneas.
+ */
+@Service
+public class InvoiceServiceImpl implements IInvoiceService {
+
+    @Autowired
+    private IInvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ICustomerRepository customerRepository;
+
+    public InvoiceServiceImpl(IInvoiceRepository invoiceRepository, ICustomerRepository customerRepository) {
+        this.invoiceRepository = invoiceRepository;
+        this.customerRepository = customerRepository;
+    }
+
+    /**
+     * Devuelve las facturas del cliente, o vacío si el cliente no existe.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<List<InvoiceSummary>> findByCustomerId(Long customerId) {
+        List<InvoiceSummary> invoices = invoiceRepository.findSummariesByCustomerId(customerId);
+        if (invoices.isEmpty() && !customerRepository.existsById(customerId)) {
+            return Optional.empty();
+        }
+        return Optional.of(invoices);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<InvoiceDetail> findById(Long id) {
+        return invoiceRepository.findSummaryById(id)
+                .map(summary -> InvoiceDetail.of(summary, invoiceRepository.findLinesByInvoiceId(id)));
+    }
+
+}
@@ -9,6 +9,7 @@ import org.springframework.security.core.GrantedAuthority;
 
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -18,26 +19,37 @@ import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
 import com.springboot.backend.ruslan.usersapp.users_backend.repositories.UserRepository;
 
 @Service
-public class JPAUserDetailsService implements UserDetailsService   {
+public class JPAUserDetailsService implements UserDetailsService, UserDetailsPasswordService   {
 
     @Autowired
     private UserRepository repository;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
     /**
      * El método loadUserByUsername se implementa de la interfaz UserDetailsService.
      * Esta interfaz es utilizada por el framework de Spring Security 
      * para obtener los detalles del usuario durante el proceso de autenticación.
+     * Los detalles se guardan en UserDetailsCache, de modo que solo se consulta la base de datos
+     * la primera vez o cuando el usuario ha cambiado. No se abre transacción: en caso de acierto
+     * en la caché no hace falta ninguna conexión a la base de datos.
      */
-    @Transactional(readOnly = true)
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+
+        return userDetailsCache.get(username, this::loadFromDatabase);
+    }
+
+    private UserDetails loadFromDatabase(String username) {
         
         /**
-         * Se llama al método findByUsername de la interfaz UserRepository para buscar un usuario por su nombre de usuario.
+         * Se llama al método findWithRolesByUsername de la interfaz UserRepository para buscar un usuario por su nombre de usuario
+         * junto con sus roles en una sola consulta.
          * Se guarda en una variable de tipo Optional<User> que evita el uso del null y maneja la posibilidad de que el usuario no exista.
          * Si el usuario no existe, se lanza una excepción UsernameNotFoundException.
          * Si el usuario existe, se asigna a la variable user.
          */
-        Optional<User> optionalUser = repository.findByUsername(username);
+        Optional<User> optionalUser = repository.findWithRolesByUsername(username);
         if(optionalUser.isEmpty()){
             throw new UsernameNotFoundException(String.format("Usuario %s no existe en el sistema", username));
         }
@@ -71,4 +83,25 @@ public class JPAUserDetailsService implements UserDetailsService   {
         authorities);
     }
 
+    /**
+     * El método updatePassword se implementa de la interfaz UserDetailsPasswordService.
+     * Spring Security lo llama tras un login correcto cuando el hash guardado tiene un coste de BCrypt
+     * menor que el actual (ver AdaptiveBCryptPasswordEncoder.upgradeEncoding), pasando la contraseña
+     * ya cifrada de nuevo con el coste actual para que se guarde en la base de datos.
+     */
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+
+        repository.findByUsername(user.getUsername()).ifPresent(userBD -> {
+            userBD.setPassword(newPassword);
+            repository.save(userBD);
+        });
+        userDetailsCache.evict(user.getUsername());
+
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+        .password(newPassword)
+        .build();
+    }
+
 }
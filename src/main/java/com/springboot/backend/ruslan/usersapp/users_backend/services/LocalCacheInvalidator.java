@@ -0,0 +1,83 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Role;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerRepository;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Aplica en esta instancia los cambios hechos en otra: quita de las cachés en memoria lo que ha cambiado.
+ * - USER: datos de login de UserDetailsCache.
+ * - PRODUCT: producto en la caché de segundo nivel y versión del catálogo (ProductCatalogCache).
+ * - CUSTOMER: vuelve a indexar el cliente en CustomerSearchIndex.
+ * - ROLE: recarga RoleRegistry y vacía las regiones de roles de la caché de segundo nivel.
+ * Cada operación es idempotente, así que aplicar dos veces el mismo cambio no tiene efectos.
+ */
+@Component
+public class LocalCacheInvalidator {
+
+    private final UserDetailsCache userDetailsCache;
+
+    private final ProductCatalogCache catalogCache;
+
+    private final CustomerSearchIndex searchIndex;
+
+    private final ICustomerRepository customerRepository;
+
+    private final RoleRegistry roleRegistry;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public LocalCacheInvalidator(UserDetailsCache userDetailsCache, ProductCatalogCache catalogCache,
+            CustomerSearchIndex searchIndex, ICustomerRepository customerRepository, RoleRegistry roleRegistry,
+            EntityManagerFactory entityManagerFactory) {
+        this.userDetailsCache = userDetailsCache;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.customerRepository = customerRepository;
+        this.roleRegistry = roleRegistry;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Invalida la entidad con la clave indicada, o todas las del tipo si key es null.
+     */
+    public void apply(EntityChangeEvent.Entity entity, String key) {
+        Cache cache = entityManagerFactory.getCache();
+        switch (entity) {
+            case USER -> {
+                if (key == null) {
+                    userDetailsCache.evictAll();
+                } else {
+                    userDetailsCache.evict(key);
+                }
+            }
+            case PRODUCT -> {
+                if (key == null) {
+                    cache.evict(Product.class);
+                } else {
+                    cache.evict(Product.class, Long.valueOf(key));
+                }
+                catalogCache.invalidate();
+            }
+            case CUSTOMER -> {
+                //El índice no tiene borrado ni recarga completa: solo se publican cambios de clientes concretos
+                if (key != null) {
+                    customerRepository.findById(Long.valueOf(key)).ifPresent(searchIndex::index);
+                }
+            }
+            case ROLE -> {
+                cache.evict(Role.class);
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion("roles-by-name");
+                roleRegistry.refresh();
+            }
+        }
+    }
+
+}
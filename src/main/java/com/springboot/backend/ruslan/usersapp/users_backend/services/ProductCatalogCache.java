@@ -0,0 +1,194 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.backend.ruslan.usersapp.users_backend.config.JacksonFormatsConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductRepository;
+
+/**
+ * Versión del catálogo de productos y cuerpo del listado ya serializado.
+ *
+ * La versión avanza cada vez que cambia un producto: al guardarlo (ProductServiceImpl.saveProd), al cambiar precios
+ * de forma masiva (ProductPriceServiceImpl) y al recibir un cambio de productos de otra instancia a través de
+ * CacheInvalidationOutbox (LocalCacheInvalidator), como mucho app.cache.invalidation.poll-interval después. De ella salen los ETag del listado
+ * y de cada producto, así que una petición con If-None-Match se puede contestar con 304 sin consultar la BBDD.
+ * El ETag incluye también el instante de arranque para que un reinicio (que vuelve a empezar la versión) nunca
+ * reutilice un ETag anterior.
+ *
+ * El listado completo se serializa una sola vez por versión y formato (JSON, CBOR o Smile, según la cabecera Accept),
+ * sin comprimir y comprimido con gzip, y se sirve tal cual mientras el catálogo no cambie. Cada formato se genera
+ * la primera vez que se pide. Los cambios hechos directamente en la BBDD, sin pasar por la aplicación,
+ * no avanzan la versión; se puede forzar insertando una fila PRODUCT sin entity_key en cache_invalidations.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private final IProductRepository productRepository;
+
+    private final Map<Format, ObjectMapper> mappers;
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private final Map<Format, Body> bodies = new ConcurrentHashMap<>();
+
+    public ProductCatalogCache(IProductRepository productRepository, ObjectMapper objectMapper,
+            MappingJackson2CborHttpMessageConverter cborConverter, MappingJackson2SmileHttpMessageConverter smileConverter) {
+        this.productRepository = productRepository;
+        //Los mismos ObjectMapper que usan los convertidores HTTP, para que el cuerpo sea idéntico al del resto de respuestas
+        this.mappers = Map.of(Format.JSON, objectMapper,
+                Format.CBOR, cborConverter.getObjectMapper(),
+                Format.SMILE, smileConverter.getObjectMapper());
+    }
+
+    /**
+     * Marca el catálogo como modificado. Se llama después de confirmar el cambio en la BBDD.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * ETag del listado completo en un formato, sin comprimir o en gzip (cada representación tiene el suyo).
+     */
+    public String listETag(Format format, boolean gzip) {
+        return etag(version.get(), format.representation(gzip));
+    }
+
+    /**
+     * ETag de un producto en un formato: cambia con cualquier cambio del catálogo.
+     */
+    public String productETag(Long id, Format format) {
+        return etag(version.get(), "p" + id + "-" + format.representation(false));
+    }
+
+    /**
+     * Devuelve el listado serializado en el formato pedido para la versión actual, generándolo si el catálogo ha cambiado.
+     * La versión se lee antes de consultar la BBDD, así que el contenido nunca es más antiguo que su ETag.
+     */
+    public Body listBody(Format format) {
+        Body current = bodies.get(format);
+        if (current != null && current.version() == version.get()) {
+            return current;
+        }
+        //ReentrantLock y no synchronized: dentro se consulta la BBDD y no debe fijar el hilo portador de un hilo virtual
+        buildLock.lock();
+        try {
+            current = bodies.get(format);
+            long expected = version.get();
+            if (current != null && current.version() == expected) {
+                return current;
+            }
+            List<Product> products = (List<Product>) productRepository.findAll();
+            byte[] content = serialize(format, products);
+            current = new Body(expected, format, content, gzip(content),
+                    etag(expected, format.representation(false)), etag(expected, format.representation(true)));
+            bodies.put(format, current);
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private String etag(long version, String representation) {
+        return "\"" + Long.toString(epoch, 36) + "-" + version + "-" + representation + "\"";
+    }
+
+    private byte[] serialize(Format format, List<Product> products) {
+        try {
+            return mappers.get(format).writeValueAsBytes(products);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se ha podido serializar el catálogo de productos", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Formatos en los que se sirve el catálogo.
+     */
+    public enum Format {
+
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR),
+        SMILE(JacksonFormatsConfig.APPLICATION_SMILE);
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        private String representation(boolean gzip) {
+            return name().toLowerCase() + (gzip ? "-gzip" : "");
+        }
+
+        /**
+         * Formato preferido según la cabecera Accept (por calidad y especificidad). Si no hay cabecera, no es válida
+         * o no acepta ninguno de los formatos se responde en JSON, como hasta ahora.
+         */
+        public static Format negotiate(String accept) {
+            if (accept == null || accept.isBlank()) {
+                return JSON;
+            }
+            List<MediaType> accepted;
+            try {
+                accepted = MediaType.parseMediaTypes(accept);
+            } catch (InvalidMediaTypeException e) {
+                return JSON;
+            }
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType type : accepted) {
+                if (type.getQualityValue() == 0) {
+                    continue;
+                }
+                for (Format format : values()) {
+                    if (type.includes(format.mediaType)) {
+                        return format;
+                    }
+                }
+            }
+            return JSON;
+        }
+    }
+
+    /**
+     * Listado serializado de una versión del catálogo en un formato, sin comprimir y en gzip, con el ETag de cada uno.
+     */
+    public record Body(long version, Format format, byte[] content, byte[] gzip, String contentETag, String gzipETag) {
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateRequest;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateResult;
+
+public interface ProductPriceService {
+
+    /**
+     * Actualiza los precios en una sola transacción y después invalida las cachés de productos.
+     */
+    PriceUpdateResult updatePrices(PriceUpdateRequest request);
+
+}
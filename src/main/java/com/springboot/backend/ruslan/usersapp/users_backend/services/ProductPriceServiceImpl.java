@@ -0,0 +1,132 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateRequest;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateResult;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Cambio masivo de precios de productos.
+ *
+ * Los precios por id se guardan con UPDATE JDBC por lotes de batch-size (con rewriteBatchedStatements MySQL recibe
+ * cada lote en un solo viaje) y el porcentaje con un único UPDATE sobre todas las filas del filtro, en ambos casos
+ * en una sola transacción y sin cargar las entidades Product.
+ *
+ * Hibernate no ve estos UPDATE, así que después del commit se quitan de la caché de segundo nivel los productos
+ * modificados (o toda la región con el porcentaje) y se avanza la versión del catálogo (ProductCatalogCache).
+ * El resto de instancias hace lo mismo al recibir el EntityChangeEvent que se publica en la transacción.
+ */
+@Service
+public class ProductPriceServiceImpl implements ProductPriceService {
+
+    private static final String UPDATE_PRICE = "update products set price = ? where id = ?";
+
+    private static final String UPDATE_BY_PERCENTAGE = "update products set price = round(price * ?, 2) where price is not null";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ProductCatalogCache catalogCache;
+
+    private final ApplicationEventPublisher events;
+
+    private final int batchSize;
+
+    public ProductPriceServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory, ProductCatalogCache catalogCache, ApplicationEventPublisher events,
+            @Value("${app.products.prices.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.catalogCache = catalogCache;
+        this.events = events;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public PriceUpdateResult updatePrices(PriceUpdateRequest request) {
+        PriceUpdateResult result = request.prices() != null
+                ? updateEach(request.prices())
+                : updateByPercentage(request.percentage(), request.filter());
+        catalogCache.invalidate();
+        return result;
+    }
+
+    private PriceUpdateResult updateEach(List<PriceUpdateRequest.Price> prices) {
+        int[][] counts = transactionTemplate.execute(status -> {
+            events.publishEvent(EntityChangeEvent.products(prices.stream().map(PriceUpdateRequest.Price::id).toList()));
+            return jdbcTemplate.batchUpdate(UPDATE_PRICE, prices, batchSize,
+                    (ps, price) -> {
+                        ps.setDouble(1, price.price());
+                        ps.setLong(2, price.id());
+                    });
+        });
+
+        long updated = 0;
+        List<Long> notFound = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Long id = prices.get(index++).id();
+                if (count == 0) {
+                    notFound.add(id);
+                } else {
+                    updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                }
+            }
+        }
+
+        Cache cache = entityManagerFactory.getCache();
+        prices.forEach(price -> cache.evict(Product.class, price.id()));
+        return new PriceUpdateResult(updated, notFound);
+    }
+
+    private PriceUpdateResult updateByPercentage(double percentage, PriceUpdateRequest.Filter filter) {
+        StringBuilder sql = new StringBuilder(UPDATE_BY_PERCENTAGE);
+        List<Object> args = new ArrayList<>();
+        args.add(1 + percentage / 100);
+        if (filter != null) {
+            if (filter.minPrice() != null) {
+                sql.append(" and price >= ?");
+                args.add(filter.minPrice());
+            }
+            if (filter.maxPrice() != null) {
+                sql.append(" and price <= ?");
+                args.add(filter.maxPrice());
+            }
+            if (filter.nameContains() != null && !filter.nameContains().isBlank()) {
+                sql.append(" and lower(name) like ?");
+                args.add("%" + escapeLike(filter.nameContains().toLowerCase()) + "%");
+            }
+        }
+
+        Integer updated = transactionTemplate.execute(status -> {
+            events.publishEvent(EntityChangeEvent.allProducts());
+            return jdbcTemplate.update(sql.toString(), args.toArray());
+        });
+        entityManagerFactory.getCache().evict(Product.class);
+        return new PriceUpdateResult(updated, null);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+}
@@ -4,23 +4,41 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseFieldset;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
 import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductRepository;
 
 @Service
 public class ProductServiceImpl implements IProductService {
 
-    @Autowired
-    private IProductRepository productRepository;
+    //Campos que se pueden pedir con fields
+    private static final SparseFieldset FIELDS = SparseFieldset.of(Product.class,
+            "id", "name", "description", "price", "dateCreate");
+
+    private final IProductRepository productRepository;
+
+    private final ProductCatalogCache catalogCache;
 
     
 
-    public ProductServiceImpl(IProductRepository productRepository) {
+    private final SparseFieldsQuery sparseFieldsQuery;
+
+    private final ApplicationEventPublisher events;
+
+    public ProductServiceImpl(IProductRepository productRepository, ProductCatalogCache catalogCache, SparseFieldsQuery sparseFieldsQuery,
+            ApplicationEventPublisher events) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.sparseFieldsQuery = sparseFieldsQuery;
+        this.events = events;
     }
 
 
@@ -32,6 +50,30 @@ public class ProductServiceImpl implements IProductService {
         return ((List<Product>)this.productRepository.findAll()).stream().toList();
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<Product> findPage(Long after, int limit) {
+
+        List<Product> products = this.productRepository.findByIdGreaterThanOrderByIdAsc(CursorPage.afterOf(after), Limit.of(limit));
+        return CursorPage.of(products, limit, Product::getId);
+    }
+
+    /**
+     * Listado con solo los campos pedidos: SELECT de esas columnas (Criteria de tuplas), sin cargar entidades.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<SparseRow> findAllFields(String fields) {
+        return sparseFieldsQuery.find(FIELDS, FIELDS.parse(fields), null, null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<SparseRow> findPageFields(String fields, Long after, int limit) {
+        List<SparseRow> rows = sparseFieldsQuery.find(FIELDS, FIELDS.parse(fields), CursorPage.afterOf(after), limit);
+        return CursorPage.of(rows, limit, row -> (Long) row.get(0));
+    }
+
     @Override
     public Optional<Product> findById(Long id) {
         return this.productRepository.findById(id);
@@ -40,7 +82,11 @@ public class ProductServiceImpl implements IProductService {
 
     @Override
     public Product saveProd(Product product) {
-        return this.productRepository.save(product);
+        //La versión del catálogo avanza después del commit de save(), así los ETag anteriores dejan de valer
+        Product saved = this.productRepository.save(product);
+        this.catalogCache.invalidate();
+        this.events.publishEvent(EntityChangeEvent.products(List.of(saved.getId()))); //Resto de instancias
+        return saved;
     }
 
 
@@ -0,0 +1,106 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Role;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.RoleRepository;
+
+/**
+ * Registro en memoria de la tabla roles.
+ * Los roles casi nunca cambian, así que se cargan al arrancar en dos índices inmutables (por id y por nombre)
+ * y se recargan periódicamente (app.roles.refresh-interval) o cuando se pide un rol que no está en el registro.
+ * Así las altas y modificaciones de usuarios no hacen un SELECT a roles por cada usuario.
+ *
+ * Cada consulta devuelve una copia del rol con su id. Para guardar la relación users_roles a Hibernate
+ * le basta con el id, de modo que la copia se puede asignar a un usuario sin consultar la base de datos.
+ */
+@Component
+public class RoleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private final RoleRepository roleRepository;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            refresh();
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se han podido cargar los roles al arrancar, se cargarán en el primer uso: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.roles.refresh-interval:PT5M}", initialDelayString = "${app.roles.refresh-interval:PT5M}")
+    public void scheduledRefresh() {
+        load();
+    }
+
+    /**
+     * Vuelve a leer la tabla roles y sustituye los índices de forma atómica.
+     * Se usa un ReentrantLock en lugar de synchronized porque dentro se consulta la BBDD:
+     * un hilo virtual bloqueado dentro de synchronized deja bloqueado también su hilo portador.
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            Map<Long, Role> byId = new HashMap<>();
+            Map<String, Role> byName = new HashMap<>();
+            roleRepository.findAll().forEach(role -> {
+                Role copy = copyOf(role);
+                byId.put(copy.getId(), copy);
+                byName.put(copy.getName(), copy);
+            });
+            snapshot = new Snapshot(Map.copyOf(byId), Map.copyOf(byName));
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public Optional<Role> findByName(String name) {
+        Role role = snapshot.byName().get(name);
+        if (role == null) {
+            refresh();
+            role = snapshot.byName().get(name);
+        }
+        return Optional.ofNullable(role).map(RoleRegistry::copyOf);
+    }
+
+    public Optional<Role> findById(Long id) {
+        Role role = snapshot.byId().get(id);
+        if (role == null) {
+            refresh();
+            role = snapshot.byId().get(id);
+        }
+        return Optional.ofNullable(role).map(RoleRegistry::copyOf);
+    }
+
+    private static Role copyOf(Role role) {
+        Role copy = new Role(role.getName());
+        copy.setId(role.getId());
+        return copy;
+    }
+
+    private record Snapshot(Map<Long, Role> byId, Map<String, Role> byName) {
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.CustomerSales;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.MonthlySales;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.ProductSales;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.RollupWatermark;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SalesAggregate;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerSalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IInvoiceRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IMonthlySalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductSalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IRollupWatermarkRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Mantiene de forma incremental las tablas de acumulados de ventas (sales_by_customer, sales_by_product y sales_by_month).
+ *
+ * Cada ejecución lee las facturas con id mayor que la marca de agua (rollup_watermarks), por bloques de batch-size,
+ * suma en la BBDD el importe de cada bloque por cliente, producto y mes, añade esas sumas a los acumulados
+ * y avanza la marca de agua, todo en la misma transacción. La fila de la marca de agua se bloquea al principio
+ * (SELECT ... FOR UPDATE), así que con varias instancias solo una procesa cada bloque y ninguna factura se suma dos veces.
+ *
+ * Los ids de factura se generan con AUTO_INCREMENT y una factura con id menor puede confirmarse después que otra
+ * con id mayor. Por eso la marca de agua solo avanza por ids consecutivos: ante un hueco se espera gap-timeout
+ * por si la factura que falta aún no se ha confirmado, y pasado ese tiempo se da por perdida (transacción deshecha).
+ * Una factura confirmada más tarde que gap-timeout no se suma a los acumulados: cada hueco saltado se registra
+ * en el log y se cuenta en actuator como analytics.rollup.gaps.skipped (número de ids saltados).
+ *
+ * Cada ejecución procesa como mucho max-batches-per-run bloques y deja el resto para la siguiente, para que
+ * la primera pasada sobre una BBDD con muchas facturas no ocupe el hilo de tareas programadas durante minutos.
+ *
+ * Los importes se calculan con el precio del producto en el momento de sumar la factura, igual que Invoice.getTotal().
+ */
+@Component
+public class SalesRollupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupJob.class);
+
+    static final String WATERMARK = "sales";
+
+    private final IInvoiceRepository invoiceRepository;
+
+    private final ICustomerSalesRepository customerSalesRepository;
+
+    private final IProductSalesRepository productSalesRepository;
+
+    private final IMonthlySalesRepository monthlySalesRepository;
+
+    private final IRollupWatermarkRepository watermarkRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final int maxBatchesPerRun;
+
+    private final long gapTimeoutNanos;
+
+    private final Counter skippedInvoices;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    //Primer id que falta en la secuencia y desde cuándo se está esperando; solo se usan con runLock
+    private long pendingGap = -1;
+
+    private long pendingGapSince;
+
+    public SalesRollupJob(IInvoiceRepository invoiceRepository, ICustomerSalesRepository customerSalesRepository,
+            IProductSalesRepository productSalesRepository, IMonthlySalesRepository monthlySalesRepository,
+            IRollupWatermarkRepository watermarkRepository, PlatformTransactionManager transactionManager,
+            MeterRegistry registry,
+            @Value("${app.analytics.rollup.batch-size:500}") int batchSize,
+            @Value("${app.analytics.rollup.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${app.analytics.rollup.gap-timeout:PT1M}") Duration gapTimeout) {
+        this.invoiceRepository = invoiceRepository;
+        this.customerSalesRepository = customerSalesRepository;
+        this.productSalesRepository = productSalesRepository;
+        this.monthlySalesRepository = monthlySalesRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.skippedInvoices = Counter.builder("analytics.rollup.gaps.skipped")
+                .description("Ids de factura dados por perdidos tras gap-timeout: si se confirman después no se suman a los acumulados")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.rollup.interval:PT30S}", initialDelayString = "${app.analytics.rollup.interval:PT30S}")
+    public void scheduledCatchUp() {
+        try {
+            int invoices = catchUp();
+            if (invoices > 0) {
+                log.debug("Acumulados de ventas actualizados con {} facturas", invoices);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se han podido actualizar los acumulados de ventas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Procesa las facturas pendientes, un bloque por transacción y como mucho max-batches-per-run bloques,
+     * y devuelve cuántas se han sumado.
+     */
+    public int catchUp() {
+        //ReentrantLock y no synchronized: dentro se consulta la BBDD y no debe fijar el hilo portador de un hilo virtual
+        runLock.lock();
+        try {
+            int total = 0;
+            int processed;
+            int batches = 0;
+            do {
+                processed = transactionTemplate.execute(status -> processBatch());
+                total += processed;
+            } while (processed > 0 && ++batches < maxBatchesPerRun);
+            return total;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private int processBatch() {
+        RollupWatermark watermark = watermarkRepository.findLockedByName(WATERMARK).orElseGet(() -> {
+            RollupWatermark created = new RollupWatermark(WATERMARK);
+            entityManager.persist(created);
+            return created;
+        });
+        long after = watermark.getLastInvoiceId();
+        List<Long> ids = invoiceRepository.findIdsAfter(after, Limit.of(batchSize));
+
+        long upTo = after;
+        int count = 0;
+        for (Long id : ids) {
+            if (id != upTo + 1) {
+                if (!gapExpired(upTo + 1)) {
+                    break;
+                }
+                log.warn("Facturas {} a {} dadas por perdidas tras esperar gap-timeout: si se confirman después no se sumarán a los acumulados",
+                        upTo + 1, id - 1);
+                skippedInvoices.increment(id - upTo - 1);
+            }
+            upTo = id;
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        add(invoiceRepository.sumByCustomer(after, upTo), customerSalesRepository, SalesAggregate::key,
+                CustomerSales::getCustomerId, CustomerSales::new,
+                (sales, delta) -> sales.add(delta.count(), delta.amount()));
+        add(invoiceRepository.sumByProduct(after, upTo), productSalesRepository, SalesAggregate::key,
+                ProductSales::getProductId, ProductSales::new,
+                (sales, delta) -> sales.add(delta.count(), delta.amount()));
+        add(invoiceRepository.sumByMonth(after, upTo), monthlySalesRepository, delta -> delta.key().intValue(),
+                MonthlySales::getPeriod, MonthlySales::new,
+                (sales, delta) -> sales.add(delta.count(), delta.amount()));
+
+        //La entidad está gestionada: el nuevo valor se guarda en el commit, junto con los acumulados
+        watermark.setLastInvoiceId(upTo);
+        return count;
+    }
+
+    /**
+     * Suma cada grupo a su fila de acumulados. Las filas existentes se leen con una sola consulta y quedan gestionadas
+     * (se actualizan en el commit); las que no existen se crean con persist, sin la consulta previa que haría save().
+     */
+    private <T, K> void add(List<SalesAggregate> deltas, CrudRepository<T, K> repository, Function<SalesAggregate, K> key,
+            Function<T, K> id, Function<K, T> create, Accumulator<T> accumulator) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<K, T> rows = new HashMap<>();
+        repository.findAllById(deltas.stream().map(key).toList()).forEach(row -> rows.put(id.apply(row), row));
+        for (SalesAggregate delta : deltas) {
+            T row = rows.get(key.apply(delta));
+            if (row == null) {
+                row = create.apply(key.apply(delta));
+                entityManager.persist(row);
+                rows.put(key.apply(delta), row);
+            }
+            accumulator.add(row, delta);
+        }
+    }
+
+    private boolean gapExpired(long missingId) {
+        long now = System.nanoTime();
+        if (pendingGap != missingId) {
+            pendingGap = missingId;
+            pendingGapSince = now;
+            return gapTimeoutNanos <= 0;
+        }
+        return now - pendingGapSince >= gapTimeoutNanos;
+    }
+
+    @FunctionalInterface
+    private interface Accumulator<T> {
+        void add(T row, SalesAggregate delta);
+    }
+
+}
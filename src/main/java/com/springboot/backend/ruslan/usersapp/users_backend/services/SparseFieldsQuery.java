@@ -0,0 +1,61 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseFieldset;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Consultas de listados con solo los campos pedidos (parámetro fields).
+ *
+ * Con la Criteria API se construye un SELECT de tuplas con únicamente las columnas de esos campos, ordenado por id
+ * y con el cursor after/limit si se indica. No se crean entidades ni se cargan relaciones: cada tupla se convierte
+ * directamente en un SparseRow.
+ */
+@Component
+public class SparseFieldsQuery {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Devuelve las filas con id mayor que after (todas si es null), como máximo limit (sin límite si es null).
+     * fields debe venir de SparseFieldset.parse, con el id en primer lugar.
+     */
+    public List<SparseRow> find(SparseFieldset fieldset, List<String> fields, Long after, Integer limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(fieldset.entity());
+
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> root.get(fieldset.attribute(field)).alias(field))
+                .toList();
+        Path<Long> id = root.get("id");
+        query.multiselect(selections).orderBy(cb.asc(id));
+        if (after != null) {
+            query.where(cb.greaterThan(id, after));
+        }
+
+        TypedQuery<Tuple> typed = entityManager.createQuery(query);
+        if (limit != null) {
+            typed.setMaxResults(limit);
+        }
+
+        SerializedString[] names = fields.stream().map(SerializedString::new).toArray(SerializedString[]::new);
+        return typed.getResultList().stream().map(tuple -> new SparseRow(names, tuple.toArray())).toList();
+    }
+
+}
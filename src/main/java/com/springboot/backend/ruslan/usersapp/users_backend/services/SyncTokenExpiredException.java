@@ -0,0 +1,13 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+/**
+ * El token de sincronización de GET /api/users/changes es anterior a los borrados que se conservan
+ * (app.users.changes.tombstone-retention): el cliente tiene que volver a descargar el listado completo.
+ */
+public class SyncTokenExpiredException extends RuntimeException {
+
+    public SyncTokenExpiredException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caché en memoria de los UserDetails que usa el login, indexada por nombre de usuario.
+ * Evita las dos consultas (usuario y roles) de JPAUserDetailsService en cada login.
+ * Las entradas caducan por tiempo (ttl) y por tamaño, y UserServiceImpl las invalida al crear,
+ * actualizar o eliminar un usuario para que los cambios de roles se apliquen en el siguiente login.
+ * El ratio de aciertos y el tiempo de carga se publican en actuator como cache.* con cache=users.details.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final AsyncCache<String, UserDetails> cache;
+
+    public UserDetailsCache(@Value("${app.security.user-cache.maximum-size:10000}") long maximumSize,
+            @Value("${app.security.user-cache.ttl:10m}") Duration ttl, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "users.details");
+    }
+
+    /**
+     * Devuelve los datos del usuario, cargándolos con loader si no están en la caché.
+     * Se devuelve siempre una copia: Spring Security borra la contraseña del UserDetails
+     * autenticado (eraseCredentials) y eso no debe afectar a la entrada guardada.
+     *
+     * La caché solo guarda un CompletableFuture por usuario y la consulta se hace fuera de ella, en el hilo que pide
+     * el usuario: así la carga desde la BBDD no se ejecuta dentro del bloqueo interno de la caché (que fijaría
+     * el hilo portador de un hilo virtual) y las peticiones simultáneas del mismo usuario esperan a una sola carga.
+     * Si el usuario se invalida mientras se carga, el resultado de esa carga no se guarda.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        CompletableFuture<UserDetails> created = new CompletableFuture<>();
+        CompletableFuture<UserDetails> future = cache.get(username, (key, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(loader.apply(username));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return User.withUserDetails(future.join()).build();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Elimina de la caché los usuarios indicados. Si hay una transacción en curso se vuelven a eliminar
+     * tras el commit, para que ningún login concurrente deje en la caché los datos anteriores al cambio.
+     */
+    public void evict(String... usernames) {
+        evictNow(usernames);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(usernames);
+                }
+            });
+        }
+    }
+
+    /**
+     * Vacía la caché entera.
+     */
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private void evictNow(String... usernames) {
+        for (String username : usernames) {
+            if (username != null) {
+                cache.synchronous().invalidate(username);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserImportResult;
+
+public interface UserImportService {
+
+    /**
+     * Importa los usuarios de un flujo NDJSON (un usuario en JSON por línea) por bloques,
+     * entregando los resultados de cada bloque a results en cuanto se ha guardado.
+     */
+    void importUsers(InputStream ndjson, Consumer<List<UserImportResult>> results) throws IOException;
+
+}
@@ -0,0 +1,376 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.AdaptiveBCryptPasswordEncoder;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Role;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserImportResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.UserRepository;
+
+import jakarta.validation.Validator;
+
+/**
+ * Importación masiva de usuarios desde un flujo NDJSON.
+ *
+ * El flujo se lee línea a línea y se procesa por bloques de chunk-size líneas, así que la memoria usada
+ * no depende del tamaño del fichero. Cada línea se valida con las mismas reglas que POST /api/users y
+ * la contraseña se cifra en paralelo en el pool de BCrypt mientras se siguen leyendo líneas.
+ * Cada bloque se guarda en su propia transacción con inserciones JDBC por lotes (users y users_roles).
+ * Antes de insertar se rechazan los nombres de usuario y correos repetidos dentro del bloque o ya registrados;
+ * si aun así el lote falla (por ejemplo por un alta simultánea), el bloque se reintenta fila a fila para que
+ * solo las filas que incumplen la restricción se marquen como error. Los usuarios creados se publican como
+ * EntityChangeEvent, igual que las altas de POST /api/users.
+ *
+ * Una línea de más de max-line-length caracteres se rechaza sin leerla entera en memoria.
+ *
+ * User usa GenerationType.IDENTITY, que impide que Hibernate agrupe las inserciones; por eso los usuarios
+ * se insertan directamente con JDBC por lotes y los ids generados se leen con getGeneratedKeys.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final String INSERT_USER = "insert into users "
+            + "(lastname, name, birthday, gender, country, municipality, province, phone, email, username, password, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_USER_ROLE = "insert into users_roles (user_id, role_id) values (?, ?)";
+
+    private final ObjectReader userReader;
+
+    private final Validator validator;
+
+    private final AdaptiveBCryptPasswordEncoder passwordEncoder;
+
+    private final RoleRegistry roleRegistry;
+
+    private final UserRepository userRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher events;
+
+    private final int chunkSize;
+
+    private final int maxLineLength;
+
+    public UserImportServiceImpl(ObjectMapper objectMapper, Validator validator, AdaptiveBCryptPasswordEncoder passwordEncoder,
+            RoleRegistry roleRegistry, UserRepository userRepository, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, ApplicationEventPublisher events,
+            @Value("${app.users.import.chunk-size:200}") int chunkSize,
+            @Value("${app.users.import.max-line-length:65536}") int maxLineLength) {
+        this.userReader = objectMapper.readerFor(User.class);
+        this.validator = validator;
+        this.passwordEncoder = passwordEncoder;
+        this.roleRegistry = roleRegistry;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public void importUsers(InputStream ndjson, Consumer<List<UserImportResult>> results) throws IOException {
+
+        LineReader reader = new LineReader(new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8)), maxLineLength);
+        List<Row> rows = new ArrayList<>(chunkSize);
+        List<UserImportResult> chunkResults = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+
+        while ((line = reader.next()) != null) {
+            lineNumber++;
+            if (reader.truncated()) {
+                chunkResults.add(UserImportResult.invalid(lineNumber, null,
+                        Map.of("json", "La línea supera los " + maxLineLength + " caracteres")));
+            } else if (line.isBlank()) {
+                continue;
+            } else {
+                read(lineNumber, line, rows, chunkResults);
+            }
+
+            if (rows.size() + chunkResults.size() >= chunkSize) {
+                flush(rows, chunkResults, results);
+            }
+        }
+        flush(rows, chunkResults, results);
+    }
+
+    private void read(long lineNumber, String line, List<Row> rows, List<UserImportResult> chunkResults) {
+
+        User user;
+        try {
+            user = userReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            chunkResults.add(UserImportResult.invalid(lineNumber, null, Map.of("json", e.getOriginalMessage())));
+            return;
+        }
+
+        Map<String, String> errors = validate(user);
+        if (errors.isEmpty()) {
+            //El hash se calcula en el pool de BCrypt mientras se siguen leyendo líneas, pero sin llenar su cola:
+            //con pendingHashes hashes pendientes se espera al más antiguo antes de encolar otro
+            int pendingHashes = passwordEncoder.getPoolSize() * 2;
+            if (rows.size() >= pendingHashes) {
+                rows.get(rows.size() - pendingHashes).password().exceptionally(e -> null).join();
+            }
+            rows.add(new Row(lineNumber, user, passwordEncoder.encodeAsync(user.getPassword())));
+        } else {
+            chunkResults.add(UserImportResult.invalid(lineNumber, user.getUsername(), errors));
+        }
+    }
+
+    private void flush(List<Row> rows, List<UserImportResult> chunkResults, Consumer<List<UserImportResult>> results) {
+        if (rows.isEmpty() && chunkResults.isEmpty()) {
+            return;
+        }
+        chunkResults.addAll(insert(rows));
+        chunkResults.sort(Comparator.comparingLong(UserImportResult::line));
+        results.accept(List.copyOf(chunkResults));
+        rows.clear();
+        chunkResults.clear();
+    }
+
+    private Map<String, String> validate(User user) {
+        Map<String, String> errors = new HashMap<>();
+        validator.validate(user).forEach(violation -> {
+            String field = violation.getPropertyPath().toString();
+            errors.put(field, "El campo " + field + " " + violation.getMessage());
+        });
+        return errors;
+    }
+
+    /**
+     * Guarda un bloque de usuarios en una transacción: primero los usuarios con un único lote JDBC
+     * y después sus roles con otro lote. Si el lote falla se reintenta cada fila en su propia transacción.
+     */
+    private List<UserImportResult> insert(List<Row> rows) {
+        List<UserImportResult> results = new ArrayList<>(rows.size());
+        List<Row> hashed = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            try {
+                row.user().setPassword(row.password().join());
+                hashed.add(row);
+            } catch (CompletionException e) {
+                results.add(UserImportResult.error(row.line(), row.user().getUsername(), e.getCause().getMessage()));
+            }
+        }
+        List<Row> unique = rejectDuplicates(hashed, results);
+        if (unique.isEmpty()) {
+            return results;
+        }
+
+        //Mismo instante para todo el bloque, con la precisión de la columna (ver UserServiceImpl.changeInstant)
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        unique.forEach(row -> row.user().setUpdatedAt(now));
+
+        try {
+            insertInTransaction(unique);
+            unique.forEach(row -> results.add(UserImportResult.created(row.line(), row.user().getId(), row.user().getUsername())));
+        } catch (DataAccessException e) {
+            //Una fila incumple una restricción que no se ha podido comprobar antes: solo esa debe fallar
+            for (Row row : unique) {
+                try {
+                    insertInTransaction(List.of(row));
+                    results.add(UserImportResult.created(row.line(), row.user().getId(), row.user().getUsername()));
+                } catch (DataAccessException rowError) {
+                    results.add(UserImportResult.error(row.line(), row.user().getUsername(), rowError.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Rechaza como inválidas las filas cuyo nombre de usuario o correo se repite en una fila anterior del bloque
+     * o ya está registrado, y devuelve el resto. Se comparan sin distinguir mayúsculas, como la intercalación de MySQL.
+     */
+    private List<Row> rejectDuplicates(List<Row> rows, List<UserImportResult> results) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        userRepository.findExistingUsernames(rows.stream().map(row -> row.user().getUsername()).toList())
+                .forEach(username -> usernames.add(username.toLowerCase(Locale.ROOT)));
+        userRepository.findExistingEmails(rows.stream().map(row -> row.user().getEmail()).toList())
+                .forEach(email -> emails.add(email.toLowerCase(Locale.ROOT)));
+
+        List<Row> unique = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Map<String, String> errors = new HashMap<>();
+            if (!usernames.add(row.user().getUsername().toLowerCase(Locale.ROOT))) {
+                errors.put("username", "El campo username ya está registrado");
+            }
+            if (!emails.add(row.user().getEmail().toLowerCase(Locale.ROOT))) {
+                errors.put("email", "El campo email ya está registrado");
+            }
+            if (errors.isEmpty()) {
+                unique.add(row);
+            } else {
+                results.add(UserImportResult.invalid(row.line(), row.user().getUsername(), errors));
+            }
+        }
+        return unique;
+    }
+
+    private void insertInTransaction(List<Row> rows) {
+        Optional<Role> roleUser = roleRegistry.findByName("ROLE_USER");
+        Optional<Role> roleAdmin = roleRegistry.findByName("ROLE_ADMIN");
+        transactionTemplate.executeWithoutResult(status -> {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS),
+                    new UserBatchSetter(rows), keys);
+
+            List<Object[]> userRoles = new ArrayList<>();
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            for (int i = 0; i < rows.size(); i++) {
+                User user = rows.get(i).user();
+                user.setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+                roleUser.ifPresent(role -> userRoles.add(new Object[] { user.getId(), role.getId() }));
+                if (user.isAdmin()) {
+                    roleAdmin.ifPresent(role -> userRoles.add(new Object[] { user.getId(), role.getId() }));
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_USER_ROLE, userRoles);
+
+            //Altas para el resto de instancias y los suscriptores de /api/events, en eventos de como mucho MAX_KEYS claves
+            for (int from = 0; from < rows.size(); from += EntityChangeEvent.MAX_KEYS) {
+                events.publishEvent(EntityChangeEvent.users(rows.subList(from, Math.min(rows.size(), from + EntityChangeEvent.MAX_KEYS))
+                        .stream().map(row -> row.user().getUsername()).toArray(String[]::new)));
+            }
+        });
+    }
+
+    private record Row(long line, User user, CompletableFuture<String> password) {
+    }
+
+    private static class UserBatchSetter implements BatchPreparedStatementSetter {
+
+        private final List<Row> rows;
+
+        UserBatchSetter(List<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+            User user = rows.get(i).user();
+            ps.setString(1, user.getLastname());
+            ps.setString(2, user.getName());
+            ps.setString(3, user.getBirthday());
+            ps.setString(4, user.getGender());
+            ps.setString(5, user.getCountry());
+            ps.setString(6, user.getMunicipality());
+            ps.setString(7, user.getProvince());
+            ps.setInt(8, user.getPhone());
+            ps.setString(9, user.getEmail());
+            ps.setString(10, user.getUsername());
+            ps.setString(11, user.getPassword());
+            ps.setTimestamp(12, Timestamp.from(user.getUpdatedAt()));
+        }
+
+        @Override
+        public int getBatchSize() {
+            return rows.size();
+        }
+    }
+
+    /**
+     * Lee el flujo línea a línea guardando como mucho maxLength caracteres de cada una: del resto de una línea
+     * más larga solo se busca el salto de línea, así que una línea enorme no ocupa memoria.
+     */
+    static final class LineReader {
+
+        private final Reader reader;
+
+        private final int maxLength;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private boolean truncated;
+
+        LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Siguiente línea sin el salto de línea (\n o \r\n), o null al final del flujo.
+         */
+        String next() throws IOException {
+            line.setLength(0);
+            truncated = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c == '\n') {
+                    return current();
+                }
+                if (line.length() < maxLength) {
+                    line.append((char) c);
+                } else {
+                    truncated = true;
+                }
+            }
+            return line.isEmpty() && !truncated ? null : current();
+        }
+
+        /**
+         * true si la última línea leída superaba maxLength caracteres y se ha cortado.
+         */
+        boolean truncated() {
+            return truncated;
+        }
+
+        private String current() {
+            int length = line.length();
+            if (!truncated && length > 0 && line.charAt(length - 1) == '\r') {
+                length--;
+            }
+            return line.substring(0, length);
+        }
+    }
+
+}
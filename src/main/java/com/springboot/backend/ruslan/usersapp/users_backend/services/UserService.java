@@ -4,11 +4,24 @@ import java.util.List;
 import java.util.Optional;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChanges;
 import com.springboot.backend.ruslan.usersapp.users_backend.models.UserRequest;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserSummary;
 
 public interface UserService {
 
-    List<User> findALL();
+    List<UserSummary> findALL();
+
+    CursorPage<UserSummary> findPage(Long after, int limit); //Devuelve una página de usuarios con id mayor que after
+
+    List<SparseRow> findAllFields(String fields); //Solo los campos pedidos; IllegalArgumentException si alguno no existe
+
+    CursorPage<SparseRow> findPageFields(String fields, Long after, int limit);
+
+    //Cambios desde el token since; IllegalArgumentException si el token no es válido y SyncTokenExpiredException si es demasiado antiguo
+    UserChanges findChanges(String since, int limit);
 
     Optional<User>findById(Long id); //Optional es un contenedor que puede o no contener un valor no nulo
 
@@ -1,20 +1,37 @@
 package com.springboot.backend.ruslan.usersapp.users_backend.services;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.Role;
 import com.springboot.backend.ruslan.usersapp.users_backend.entities.User;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.UserTombstone;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseFieldset;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChange;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChanges;
 import com.springboot.backend.ruslan.usersapp.users_backend.models.UserRequest;
-import com.springboot.backend.ruslan.usersapp.users_backend.repositories.RoleRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IUserTombstoneRepository;
 import com.springboot.backend.ruslan.usersapp.users_backend.repositories.UserRepository;
 
 
@@ -32,7 +49,7 @@ import com.springboot.backend.ruslan.usersapp.users_backend.repositories.UserRep
 /**
  * @Service Indica que la clase es un servicio de Spring Boot que se encarga de la lógica de negocio
  * Es decir es la clase que se encarga de realizar las operaciones CRUD.
- * @Autowired Inyección de dependencias para asi poder acceder a los métodos de la clase UserRepository
+ * Las dependencias (UserRepository y el resto) se inyectan por el constructor para asi poder acceder a sus métodos
  * @Transactional se utiliza para definir el alanance de una transacción en un método. Un transacción
  * es una unidad de trabajo que se ejecuta de forma atómica, es decir, o se ejecuta completamente o no se ejecuta.
  * Garantiza que las operaciones dentro de la transacción se ejecuten de manera aislada y segura para mantener la base de datos
@@ -42,33 +59,131 @@ import com.springboot.backend.ruslan.usersapp.users_backend.repositories.UserRep
 @Service
 public class UserServiceImpl implements UserService {
 
-    @Autowired
-    private UserRepository repository;
+    private static final Logger log = LoggerFactory.getLogger(UserServiceImpl.class);
 
-    @Autowired
-    private RoleRepository roleRepository;
+    //Campos que se pueden pedir con fields; la contraseña y los roles no están
+    private static final SparseFieldset FIELDS = SparseFieldset.of(User.class,
+            "id", "name", "lastname", "birthday", "gender", "country", "municipality", "province", "phone", "email",
+            "username", "admin");
+
+    private final UserRepository repository;
+
+    private final RoleRegistry roleRegistry;
 
   
-    private PasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
+
+    private final UserDetailsCache userDetailsCache;
     
 
-    public UserServiceImpl(UserRepository repository, PasswordEncoder passwordEncoder, RoleRepository roleRepository) {
+    private final SparseFieldsQuery sparseFieldsQuery;
+
+    private final ApplicationEventPublisher events;
+
+    private final IUserTombstoneRepository tombstoneRepository;
+
+    private final Duration changesOverlap;
+
+    private final Duration tombstoneRetention;
+
+    public UserServiceImpl(UserRepository repository, PasswordEncoder passwordEncoder, RoleRegistry roleRegistry,
+            UserDetailsCache userDetailsCache, SparseFieldsQuery sparseFieldsQuery, ApplicationEventPublisher events,
+            IUserTombstoneRepository tombstoneRepository,
+            @Value("${app.users.changes.overlap:PT5S}") Duration changesOverlap,
+            @Value("${app.users.changes.tombstone-retention:P30D}") Duration tombstoneRetention) {
         this.repository = repository;
         this.passwordEncoder = passwordEncoder;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
+        this.userDetailsCache = userDetailsCache;
+        this.sparseFieldsQuery = sparseFieldsQuery;
+        this.events = events;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changesOverlap = changesOverlap;
+        this.tombstoneRetention = tombstoneRetention;
     }
 
+    /**
+     * Los usuarios se leen como UserSummary en una única consulta que solo trae las columnas del listado
+     * (sin contraseña ni roles); el campo admin se calcula en la propia consulta (@Formula en User),
+     * por lo que el número de consultas no depende del número de usuarios.
+     */
     @Transactional(readOnly = true) //Indica que el método es de solo lectura
     @Override
-    public List<User> findALL() {
+    public List<UserSummary> findALL() {
+
+        return repository.findAllSummaries();
+
+    }
+
+    /**
+     * Devuelve una página de usuarios usando paginación por cursor (keyset).
+     * Solo se leen de la base de datos los usuarios de la página, por lo que el coste no crece con el tamaño de la tabla.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<UserSummary> findPage(Long after, int limit) {
 
-        return ((List<User>) this.repository.findAll()).stream().map(user -> {
-            boolean admin = user.getRoles().stream().anyMatch(role -> "ROLE_ADMIN".equals(role.getName()));
-            user.setAdmin(admin);
-            return user;
-            
-        }).collect(Collectors.toList()); 
+        List<UserSummary> users = repository.findSummariesAfter(CursorPage.afterOf(after), Limit.of(limit));
+        return CursorPage.of(users, limit, UserSummary::id);
+    }
 
+    /**
+     * Listado con solo los campos pedidos: SELECT de esas columnas (Criteria de tuplas), sin cargar entidades.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<SparseRow> findAllFields(String fields) {
+        return sparseFieldsQuery.find(FIELDS, FIELDS.parse(fields), null, null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<SparseRow> findPageFields(String fields, Long after, int limit) {
+        List<SparseRow> rows = sparseFieldsQuery.find(FIELDS, FIELDS.parse(fields), CursorPage.afterOf(after), limit);
+        return CursorPage.of(rows, limit, row -> (Long) row.get(0));
+    }
+
+    /**
+     * Cambios desde el token since (o todos los usuarios si es null), leídos por rangos de los índices
+     * (updated_at, id) de users y (deleted_at, user_id) de user_tombstones: el coste depende del número de cambios,
+     * no del tamaño de la tabla. Cada secuencia devuelve como mucho limit filas.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public UserChanges findChanges(String since, int limit) {
+
+        Instant now = Instant.now();
+        UserChanges.Cursor safe = new UserChanges.Cursor(now.minus(changesOverlap).truncatedTo(ChronoUnit.MICROS), 0);
+        //En la primera sincronización se envían todos los usuarios y solo los borrados a partir de ahora
+        UserChanges.Token token = since == null
+                ? new UserChanges.Token(UserChanges.Cursor.START, safe)
+                : UserChanges.Token.parse(since);
+        if (token.deleted().at().isBefore(now.minus(tombstoneRetention))) {
+            throw new SyncTokenExpiredException("El token de sincronización es anterior a los borrados que se conservan: hay que volver a descargar el listado completo");
+        }
+
+        List<UserChange> changed = repository.findChangesAfter(token.users().at(), token.users().id(), Limit.of(limit));
+        List<UserTombstone> deleted = tombstoneRepository.findDeletedAfter(token.deleted().at(), token.deleted().id(), Limit.of(limit));
+
+        UserChanges.Cursor users = changed.size() == limit
+                ? new UserChanges.Cursor(changed.get(limit - 1).updatedAt(), changed.get(limit - 1).id())
+                : UserChanges.Cursor.max(token.users(), safe);
+        UserChanges.Cursor removed = deleted.size() == limit
+                ? new UserChanges.Cursor(deleted.get(limit - 1).getDeletedAt(), deleted.get(limit - 1).getUserId())
+                : UserChanges.Cursor.max(token.deleted(), safe);
+
+        return new UserChanges(changed, deleted.stream().map(UserTombstone::getUserId).toList(),
+                new UserChanges.Token(users, removed).encode(), changed.size() == limit || deleted.size() == limit);
+    }
+
+    @Scheduled(fixedDelayString = "${app.users.changes.tombstone-cleanup-interval:PT1H}",
+            initialDelayString = "${app.users.changes.tombstone-cleanup-interval:PT1H}")
+    public void purgeTombstones() {
+        try {
+            tombstoneRepository.deleteDeletedBefore(Instant.now().minus(tombstoneRetention));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("No se han podido borrar las marcas de usuarios eliminados antiguas: {}", e.getMessage());
+        }
     }
     // La transacción de solo lectura lo que permite optimizar la base de datos, ya que no se bloquea la base de datos.
     @Transactional(readOnly = true)
@@ -82,20 +197,14 @@ public class UserServiceImpl implements UserService {
     @Transactional
     @Override
     public User save(User user) {
-        List<Role> roles = new ArrayList<>();
-        Optional<Role> optionalRoleUser = roleRepository.findByName("ROLE_USER");
-        optionalRoleUser.ifPresent(role -> roles.add(role));
-
-        if (user.isAdmin()){
-            Optional<Role> optionalRoleAdmin = roleRepository.findByName("ROLE_ADMIN");
-            optionalRoleAdmin.ifPresent(role -> roles.add(role));
-        }
-
        
         //NOTA: se me olvidó pasar el rol al usuario antes de guardar el usuario en la base de datos
-        user.setRoles(roles);
+        user.setRoles(getRoles(user.isAdmin()));
         //Encripta la contraseña del usuario antes de guardarla en la base de datos
         user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setUpdatedAt(changeInstant());
+        userDetailsCache.evict(user.getUsername()); //Invalida los datos de login que hubiera en caché con ese nombre de usuario
+        events.publishEvent(EntityChangeEvent.users(user.getUsername())); //Y en el resto de instancias
         return repository.save(user);
         
     }
@@ -107,6 +216,9 @@ public class UserServiceImpl implements UserService {
         Optional<User> userOptional = repository.findById(id);
         if(userOptional.isPresent()) {
             User userBD = userOptional.get();
+            //Se invalidan los datos de login del nombre de usuario anterior y del nuevo, para que los roles se apliquen en el siguiente login
+            userDetailsCache.evict(userBD.getUsername(), user.getUsername());
+            events.publishEvent(EntityChangeEvent.users(userBD.getUsername(), user.getUsername()));
             userBD.setEmail(user.getEmail());
             userBD.setLastname(user.getLastname());
             userBD.setName(user.getName());
@@ -117,18 +229,11 @@ public class UserServiceImpl implements UserService {
             userBD.setMunicipality(user.getMunicipality());
             userBD.setProvince(user.getProvince());
             userBD.setAdmin(user.isAdmin());
+            userBD.setUpdatedAt(changeInstant());
           
 
             //Antes de guardar actualizar el rol del usuario
-            List<Role> roles = new ArrayList<>();
-            Optional<Role> optionalRoleUser = roleRepository.findByName("ROLE_USER");
-            optionalRoleUser.ifPresent(role -> roles.add(role));
-
-            if (user.isAdmin()){
-                Optional<Role> optionalRoleAdmin = roleRepository.findByName("ROLE_ADMIN");
-                optionalRoleAdmin.ifPresent(role -> roles.add(role));
-            }
-            userBD.setRoles(roles); //Actualiza el rol del usuario
+            userBD.setRoles(getRoles(user.isAdmin())); //Actualiza el rol del usuario
             repository.save(userBD); //Guarda el usuario actualizado en la base de datos
             return Optional.of(userBD); //Devuelve un Optional con el usuario actualizado
         }
@@ -141,10 +246,35 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteById(Long id) {
 
+        repository.findById(id).ifPresent(user -> {
+            userDetailsCache.evict(user.getUsername());
+            events.publishEvent(EntityChangeEvent.users(user.getUsername()));
+            tombstoneRepository.save(new UserTombstone(user.getId(), changeInstant()));
+        });
         repository.deleteById(id);
         
     }
 
-   
+    /**
+     * Instante de un cambio con la precisión de la columna (microsegundos), para que el valor guardado
+     * y el que se compara con los tokens de sincronización sean el mismo.
+     */
+    static Instant changeInstant() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Devuelve los roles de un usuario: siempre ROLE_USER y además ROLE_ADMIN si es administrador.
+     * Los roles se obtienen del registro en memoria (RoleRegistry), sin consultar la tabla roles.
+     */
+    private List<Role> getRoles(boolean admin) {
+        List<Role> roles = new ArrayList<>();
+        roleRegistry.findByName("ROLE_USER").ifPresent(role -> roles.add(role));
+
+        if (admin){
+            roleRegistry.findByName("ROLE_ADMIN").ifPresent(role -> roles.add(role));
+        }
+        return roles;
+    }
 
 }
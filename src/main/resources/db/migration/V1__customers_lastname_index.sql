@@ -0,0 +1,2 @@
+-- Búsqueda de clientes por apellido (GET /api/customers/{lastname})
+create index idx_customers_lastname on customers (lastname);
@@ -0,0 +1,33 @@
+-- Tablas de acumulados de ventas que mantiene SalesRollupJob y que sirven /api/analytics.
+-- Se rellenan solas: con rollup_watermarks vacía el primer pase acumula todas las facturas existentes.
+create table sales_by_customer (
+    customer_id bigint not null,
+    invoice_count bigint not null default 0,
+    revenue double not null default 0,
+    primary key (customer_id)
+) engine=InnoDB;
+
+create index idx_sales_by_customer_revenue on sales_by_customer (revenue);
+
+create table sales_by_product (
+    product_id bigint not null,
+    quantity bigint not null default 0,
+    revenue double not null default 0,
+    primary key (product_id)
+) engine=InnoDB;
+
+create index idx_sales_by_product_revenue on sales_by_product (revenue);
+
+-- period es el mes en formato aaaamm (MonthlyRevenue.period)
+create table sales_by_month (
+    period integer not null,
+    invoice_count bigint not null default 0,
+    revenue double not null default 0,
+    primary key (period)
+) engine=InnoDB;
+
+create table rollup_watermarks (
+    name varchar(255) not null,
+    last_invoice_id bigint not null default 0,
+    primary key (name)
+) engine=InnoDB;
@@ -0,0 +1,13 @@
+-- Outbox de invalidaciones de caché entre instancias (CacheInvalidationOutbox).
+-- Cada cambio de usuarios, productos, clientes y precios inserta aquí sus filas antes del commit,
+-- así que la tabla tiene que existir antes de desplegar la versión que la usa.
+create table cache_invalidations (
+    id bigint not null auto_increment,
+    entity varchar(20) not null,
+    entity_key varchar(255),
+    origin varchar(64) not null,
+    created_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_cache_invalidations_created_at on cache_invalidations (created_at);
@@ -0,0 +1,18 @@
+-- Sincronización incremental de usuarios (GET /api/users/changes).
+-- Hay que aplicarlo antes de desplegar la versión que mapea users.updated_at: sin la columna fallan todas
+-- las consultas de usuarios.
+
+-- Fecha del último cambio de cada usuario. El valor por defecto rellena las filas existentes al añadir la columna,
+-- así que todos los usuarios actuales aparecen en la primera sincronización y en las siguientes si cambian.
+alter table users add column updated_at datetime(6) not null default current_timestamp(6);
+
+create index idx_users_updated_at on users (updated_at, id);
+
+-- Usuarios eliminados, para avisar de los borrados; se conservan app.users.changes.tombstone-retention
+create table user_tombstones (
+    user_id bigint not null,
+    deleted_at datetime(6) not null,
+    primary key (user_id)
+) engine=InnoDB;
+
+create index idx_user_tombstones_deleted_at on user_tombstones (deleted_at, user_id);
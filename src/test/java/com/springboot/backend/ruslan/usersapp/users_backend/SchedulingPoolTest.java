@@ -0,0 +1,46 @@
+package com.springboot.backend.ruslan.usersapp.users_backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Cada tarea @Scheduled tiene su propio hilo en el pool de tareas programadas, para que una tarea larga
+ * (la consolidación de ventas, la recarga de claves...) no retrase el sondeo de invalidaciones ni los heartbeats SSE.
+ */
+class SchedulingPoolTest {
+
+    @Test
+    void schedulingPoolHasAThreadPerScheduledTask() throws Exception {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(true);
+        List<String> tasks = new ArrayList<>();
+        for (BeanDefinition bean : scanner.findCandidateComponents(UsersBackendApplication.class.getPackageName())) {
+            Class<?> type = ClassUtils.forName(bean.getBeanClassName(), getClass().getClassLoader());
+            for (Method method : ReflectionUtils.getUniqueDeclaredMethods(type)) {
+                if (AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)) {
+                    tasks.add(type.getSimpleName() + "." + method.getName());
+                }
+            }
+        }
+        Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+
+        assertThat(tasks).isNotEmpty();
+        assertThat(Integer.parseInt(properties.getProperty("spring.task.scheduling.pool.size")))
+                .as("spring.task.scheduling.pool.size para las tareas %s", tasks)
+                .isGreaterThanOrEqualTo(tasks.size());
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdaptiveBCryptPasswordEncoderTest {
+
+    private final AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(5, 1, 1, new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        encoder.destroy();
+    }
+
+    @Test
+    void onlyHashesWithALowerCostAreUpgraded() {
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("12345"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("12345"))).isFalse();
+        //Un hash de otro nodo con un coste mayor no se rebaja
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("12345"))).isFalse();
+        assertThat(encoder.upgradeEncoding(null)).isFalse();
+        assertThat(encoder.upgradeEncoding("{noop}12345")).isFalse();
+    }
+
+    @Test
+    void hashesCarryTheConfiguredCost() {
+        String hash = encoder.encode("12345");
+
+        assertThat(hash).startsWith("$2a$05$");
+        assertThat(encoder.matches("12345", hash)).isTrue();
+        assertThat(encoder.matches("54321", hash)).isFalse();
+        assertThat(encoder.encodeAsync("12345").join()).startsWith("$2a$05$");
+    }
+
+    @Test
+    void calibrationStaysWithinTheConfiguredRange() {
+        assertThat(AdaptiveBCryptPasswordEncoder.calibrate(0, 4, 6)).isEqualTo(4);
+        assertThat(AdaptiveBCryptPasswordEncoder.calibrate(60_000, 4, 6)).isEqualTo(6);
+    }
+
+    @Test
+    void fullQueueRejectsBothSyncAndAsyncHashes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CharSequence blocking = new BlockingPassword(started, release);
+
+        //Un hash ocupa el único hilo y otro la única posición de la cola
+        CompletableFuture<String> running = encoder.encodeAsync(blocking);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = encoder.encodeAsync("12345");
+
+        CompletableFuture<String> rejected = encoder.encodeAsync("12345");
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(PasswordEncoderBusyException.class);
+        assertThatThrownBy(() -> encoder.encode("12345")).isInstanceOf(PasswordEncoderBusyException.class);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).startsWith("$2a$05$");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).startsWith("$2a$05$");
+    }
+
+    /**
+     * Contraseña que bloquea el hilo de BCrypt al leerla hasta que el test la libera.
+     */
+    private record BlockingPassword(CountDownLatch started, CountDownLatch release) implements CharSequence {
+
+        @Override
+        public String toString() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "12345";
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+    }
+
+}
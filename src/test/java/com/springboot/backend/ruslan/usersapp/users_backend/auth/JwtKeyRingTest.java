@@ -0,0 +1,132 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCache.ValidatedToken;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtKeyRingTest {
+
+    @TempDir
+    Path dir;
+
+    private final TokenJWTCache tokenCache = new TokenJWTCache(100, new SimpleMeterRegistry());
+
+    private static String key(int seed) {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private Path writeKeys(String... lines) throws IOException {
+        Path file = dir.resolve("jwt-keys.properties");
+        Files.writeString(file, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private JwtKeyRing keyRing(Path file, Duration activationDelay) {
+        return new JwtKeyRing(file.toString(), "", "", "PKCS12", "", activationDelay, tokenCache);
+    }
+
+    @Test
+    void tokensAreSignedWithTheHighestKidAndVerifiedByEveryInstanceWithTheSameKeys() throws Exception {
+        Path file = writeKeys("2024-01=" + key(1), "2024-06=" + key(2));
+        JwtKeyRing first = keyRing(file, Duration.ofMinutes(2));
+        JwtKeyRing second = keyRing(file, Duration.ofMinutes(2));
+
+        assertThat(first.signingKey().kid()).isEqualTo("2024-06");
+        String token = TokenJWTCodec.createToken(first, "admin", List.of());
+        assertThat(TokenJWTCodec.parse(second, token).getSubject()).isEqualTo("admin");
+    }
+
+    @Test
+    void newKeyIsAcceptedAtOnceButOnlySignsAfterTheActivationDelay() throws Exception {
+        Path file = writeKeys("a=" + key(1));
+        JwtKeyRing delayed = keyRing(file, Duration.ofHours(1));
+        JwtKeyRing immediate = keyRing(file, Duration.ZERO);
+
+        writeKeys("a=" + key(1), "b=" + key(2));
+        delayed.reload();
+        immediate.reload();
+
+        assertThat(delayed.signingKey().kid()).isEqualTo("a");
+        assertThat(immediate.signingKey().kid()).isEqualTo("b");
+        //La instancia que aún firma con "a" acepta ya los tokens firmados con "b" por la otra
+        String token = TokenJWTCodec.createToken(immediate, "admin", List.of());
+        assertThat(TokenJWTCodec.parse(delayed, token).getSubject()).isEqualTo("admin");
+    }
+
+    @Test
+    void removedKeyIsRejectedAndValidatedTokensAreForgotten() throws Exception {
+        Path file = writeKeys("a=" + key(1), "b=" + key(2));
+        JwtKeyRing keyRing = new JwtKeyRing(file.toString(), "", "", "PKCS12", "a", Duration.ZERO, tokenCache);
+        String token = TokenJWTCodec.createToken(keyRing, "admin", List.of());
+        tokenCache.put(token, new Date(System.currentTimeMillis() + 3_600_000), new ValidatedToken("admin", List.of()));
+
+        writeKeys("b=" + key(2));
+        keyRing.reload();
+
+        assertThatThrownBy(() -> TokenJWTCodec.parse(keyRing, token)).isInstanceOf(JwtException.class);
+        assertThat(tokenCache.get(token)).isNull();
+        assertThat(keyRing.signingKey().kid()).isEqualTo("b");
+    }
+
+    @Test
+    void changedKeyInvalidatesTheTokensSignedWithThePreviousOne() throws Exception {
+        Path file = writeKeys("a=" + key(1));
+        JwtKeyRing keyRing = keyRing(file, Duration.ZERO);
+        String token = TokenJWTCodec.createToken(keyRing, "admin", List.of());
+
+        writeKeys("a=" + key(3));
+        keyRing.reload();
+
+        assertThatThrownBy(() -> TokenJWTCodec.parse(keyRing, token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void unreadableKeysOnReloadKeepThePreviousOnes() throws Exception {
+        Path file = writeKeys("a=" + key(1));
+        JwtKeyRing keyRing = keyRing(file, Duration.ZERO);
+        String token = TokenJWTCodec.createToken(keyRing, "admin", List.of());
+        tokenCache.put(token, new Date(System.currentTimeMillis() + 3_600_000), new ValidatedToken("admin", List.of()));
+
+        writeKeys("a=" + Base64.getEncoder().encodeToString(new byte[16]));
+        keyRing.reload();
+
+        assertThat(TokenJWTCodec.parse(keyRing, token).getSubject()).isEqualTo("admin");
+        assertThat(tokenCache.get(token)).isNotNull();
+    }
+
+    @Test
+    void keysShorterThan256BitsPreventStartingUp() throws Exception {
+        Path file = writeKeys("a=" + Base64.getEncoder().encodeToString(new byte[16]));
+
+        assertThatThrownBy(() -> keyRing(file, Duration.ZERO)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void emptyKeysFilePreventsStartingUp() throws Exception {
+        Path file = writeKeys("");
+
+        assertThatThrownBy(() -> keyRing(file, Duration.ZERO)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No se ha encontrado ninguna clave JWT");
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import java.util.Arrays;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Configuración de seguridad real (SpringSecurityConfig) para los tests @WebMvcTest.
+ * Las claves JWT son efímeras y no hay base de datos: las peticiones se autentican con tokens firmados
+ * con bearer(), y el login no encuentra ningún usuario.
+ * Los tests deben fijar app.security.password.strength para no calibrar BCrypt al arrancar.
+ */
+@TestConfiguration
+@Import({ SpringSecurityConfig.class, TokenJWTCache.class })
+public class TestSecurityConfig {
+
+    @Bean
+    JwtKeyRing jwtKeyRing() {
+        return JwtKeyRing.ephemeral();
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    UserDetailsService userDetailsService() {
+        return username -> {
+            throw new UsernameNotFoundException(username);
+        };
+    }
+
+    /**
+     * Cabecera Authorization con un token válido para el usuario y los roles indicados (ROLE_USER, ROLE_ADMIN...).
+     */
+    public static String bearer(JwtKeyRing keyRing, String username, String... roles) {
+        return TokenJWTConfig.PREFIX_TOKEN + TokenJWTCodec.createToken(keyRing, username,
+                Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList());
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCache.ValidatedToken;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenJWTCacheTest {
+
+    private final TokenJWTCache cache = new TokenJWTCache(100, new SimpleMeterRegistry());
+
+    private static Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void validatedTokenIsReturnedUntilItExpires() {
+        ValidatedToken validated = new ValidatedToken("admin", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        cache.put("a.b.c", inOneHour(), validated);
+        cache.put("d.e.f", new Date(System.currentTimeMillis() - 1), validated);
+
+        assertThat(cache.get("a.b.c")).isEqualTo(validated);
+        assertThat(cache.get("d.e.f")).isNull();
+        assertThat(cache.get("x.y.z")).isNull();
+    }
+
+    @Test
+    void tokensWithoutExpirationAreNotCached() {
+        cache.put("a.b.c", null, new ValidatedToken("admin", List.of()));
+
+        assertThat(cache.get("a.b.c")).isNull();
+    }
+
+    @Test
+    void invalidateAllForgetsEveryToken() {
+        cache.put("a.b.c", inOneHour(), new ValidatedToken("admin", List.of()));
+        cache.invalidateAll();
+
+        assertThat(cache.get("a.b.c")).isNull();
+    }
+
+    @Test
+    void authoritiesAreCopiedIntoAnImmutableList() {
+        List<GrantedAuthority> roles = new ArrayList<>(List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        ValidatedToken validated = new ValidatedToken("juanp", roles);
+        roles.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+        assertThat(validated.authorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        assertThat(validated.authorities()).isUnmodifiable();
+    }
+
+}
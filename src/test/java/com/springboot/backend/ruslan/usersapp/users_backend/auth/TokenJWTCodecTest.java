@@ -0,0 +1,80 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.LoginRequest;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+
+class TokenJWTCodecTest {
+
+    private final JwtKeyRing keyRing = JwtKeyRing.ephemeral();
+
+    @Test
+    void rolesTravelAsANativeArrayClaim() throws Exception {
+        String token = TokenJWTCodec.createToken(keyRing, "admin",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+        Claims claims = TokenJWTCodec.parse(keyRing, token);
+
+        assertThat(claims.getSubject()).isEqualTo("admin");
+        List<?> roles = claims.get(TokenJWTCodec.CLAIM_ROLES, List.class);
+        assertThat(roles).isEqualTo(List.of("ROLE_USER", "ROLE_ADMIN"));
+        assertThat(claims.get("isAdmin", Boolean.class)).isTrue();
+        assertThat(TokenJWTCodec.authorities(claims)).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @Test
+    void tokensWithTheLegacyAuthoritiesClaimAreStillAccepted() throws Exception {
+        JwtKeyRing.SigningKey signingKey = keyRing.signingKey();
+        String legacy = Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .subject("juanp")
+                .claim(TokenJWTCodec.CLAIM_LEGACY_AUTHORITIES, "[{\"authority\":\"ROLE_USER\"}]")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(signingKey.key())
+                .compact();
+
+        Claims claims = TokenJWTCodec.parse(keyRing, legacy);
+
+        assertThat(TokenJWTCodec.authorities(claims)).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void tokenWithoutRolesHasNoAuthorities() throws Exception {
+        assertThat(TokenJWTCodec.authorities(Jwts.claims().subject("juanp").build())).isEmpty();
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = TokenJWTCodec.createToken(keyRing, "admin", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> TokenJWTCodec.parse(keyRing, tampered)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> TokenJWTCodec.parse(JwtKeyRing.ephemeral(), token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void credentialsIgnoreUnknownFields() throws Exception {
+        byte[] body = "{\"username\":\"admin\",\"password\":\"12345\",\"email\":\"a@x.com\"}".getBytes(StandardCharsets.UTF_8);
+
+        LoginRequest credentials = TokenJWTCodec.readCredentials(new ByteArrayInputStream(body));
+
+        assertThat(credentials.username()).isEqualTo("admin");
+        assertThat(credentials.password()).isEqualTo("12345");
+    }
+
+}
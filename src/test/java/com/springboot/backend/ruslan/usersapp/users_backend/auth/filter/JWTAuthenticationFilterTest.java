@@ -0,0 +1,70 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.PasswordEncoderBusyException;
+
+class JWTAuthenticationFilterTest {
+
+    private static final PasswordEncoderBusyException BUSY = new PasswordEncoderBusyException(
+            "Demasiadas operaciones de cifrado de contraseñas en espera", new RejectedExecutionException());
+
+    private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+
+    private final JWTAuthenticationFilter filter = new JWTAuthenticationFilter(authenticationManager, JwtKeyRing.ephemeral());
+
+    private MockHttpServletResponse login() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login");
+        request.setContentType("application/json");
+        request.setContent("{\"username\":\"admin\",\"password\":\"12345\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void fullPasswordQueueAnswersServiceUnavailable() throws Exception {
+        when(authenticationManager.authenticate(any())).thenThrow(BUSY);
+
+        MockHttpServletResponse response = login();
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("Demasiadas operaciones de cifrado");
+    }
+
+    @Test
+    void rejectionWhileLookingUpTheUserAlsoAnswersServiceUnavailable() throws Exception {
+        //Usuario inexistente: DaoAuthenticationProvider calcula un hash igualmente y envuelve el rechazo
+        when(authenticationManager.authenticate(any())).thenThrow(new InternalAuthenticationServiceException(BUSY.getMessage(), BUSY));
+
+        assertThat(login().getStatus()).isEqualTo(503);
+    }
+
+    @Test
+    void wrongCredentialsAnswerUnauthorized() throws Exception {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        MockHttpServletResponse response = login();
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader("Retry-After")).isNull();
+    }
+
+}
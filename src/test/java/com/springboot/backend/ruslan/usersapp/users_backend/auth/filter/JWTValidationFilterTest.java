@@ -0,0 +1,81 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.auth.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCache;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TokenJWTCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JWTValidationFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final JwtKeyRing keyRing = JwtKeyRing.ephemeral();
+
+    private final JWTValidationFilter filter = new JWTValidationFilter(mock(AuthenticationManager.class), keyRing,
+            new TokenJWTCache(100, registry), registry);
+
+    private final String token = TokenJWTCodec.createToken(keyRing, "juanp", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Ejecuta el filtro y devuelve la autenticación que ve el siguiente elemento de la cadena.
+     */
+    private Authentication authenticate(String header, MockHttpServletResponse response) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/2");
+        request.addHeader("Authorization", header);
+        List<Authentication> seen = new ArrayList<>();
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest req, jakarta.servlet.ServletResponse res) {
+                seen.add(SecurityContextHolder.getContext().getAuthentication());
+            }
+        });
+        SecurityContextHolder.clearContext();
+        return seen.isEmpty() ? null : seen.get(0);
+    }
+
+    @Test
+    void everyRequestGetsItsOwnAuthenticationEvenFromTheCache() throws Exception {
+        Authentication first = authenticate("Bearer " + token, new MockHttpServletResponse());
+        first.setAuthenticated(false);
+        Authentication second = authenticate("Bearer " + token, new MockHttpServletResponse());
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(second.getName()).isEqualTo("juanp");
+        assertThat(second.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        assertThat(registry.get("security.jwt.verify").tag("cache", "hit").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidTokenIsRejectedWith401() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(authenticate("Bearer " + token + "x", response)).isNull();
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(registry.get("security.jwt.verify").tag("outcome", "invalid").timer().count()).isEqualTo(1);
+    }
+
+}
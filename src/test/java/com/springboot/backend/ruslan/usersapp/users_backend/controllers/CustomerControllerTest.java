@@ -0,0 +1,126 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TestSecurityConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSearchResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSummary;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.SparseRow;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.CustomerExportService;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ICustomerService;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.IInvoiceService;
+
+@WebMvcTest(controllers = CustomerController.class, properties = "app.security.password.strength=4")
+@Import(TestSecurityConfig.class)
+class CustomerControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ICustomerService customerService;
+
+    @MockBean
+    private IInvoiceService invoiceService;
+
+    @MockBean
+    private CustomerExportService exportService;
+
+    private static CustomerSummary customer(long id) {
+        return new CustomerSummary(id, "Ana", "Garcia", "ana" + id + "@x.com", "600", "Valladolid", "Valladolid", "ES", 0L);
+    }
+
+    @Test
+    void pageIsReadAfterTheCursor() throws Exception {
+        when(customerService.findPage(5L, 2)).thenReturn(CursorPage.of(List.of(customer(6), customer(8)), 2, CustomerSummary::id));
+
+        mockMvc.perform(get("/api/customers").param("after", "5").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(6))
+                .andExpect(jsonPath("$.nextCursor").value(8))
+                .andExpect(jsonPath("$.limit").value(2));
+    }
+
+    @Test
+    void limitIsClampedBeforeReachingTheService() throws Exception {
+        when(customerService.findPage(null, CursorPage.MAX_LIMIT)).thenReturn(CursorPage.of(List.of(), CursorPage.MAX_LIMIT, CustomerSummary::id));
+
+        mockMvc.perform(get("/api/customers").param("limit", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(customerService).findPage(null, CursorPage.MAX_LIMIT);
+    }
+
+    @Test
+    void fieldsSelectTheColumnsToReturn() throws Exception {
+        SerializedString[] names = { new SerializedString("id"), new SerializedString("email") };
+        when(customerService.findPageFields("email", 5L, 2)).thenReturn(
+                CursorPage.of(List.of(new SparseRow(names, new Object[] { 6L, "ana@x.com" })), 2, row -> (Long) row.get(0)));
+
+        mockMvc.perform(get("/api/customers").param("fields", "email").param("after", "5").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(6))
+                .andExpect(jsonPath("$.content[0].email").value("ana@x.com"))
+                .andExpect(jsonPath("$.content[0].name").doesNotExist());
+    }
+
+    @Test
+    void unknownFieldIsABadRequest() throws Exception {
+        when(customerService.findAllFields("password")).thenThrow(new IllegalArgumentException("campo desconocido: password"));
+
+        mockMvc.perform(get("/api/customers").param("fields", "password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("campo desconocido: password"));
+    }
+
+    @Test
+    void searchNormalisesPageAndSize() throws Exception {
+        when(customerService.search("garcia", 0, CursorPage.MAX_LIMIT))
+                .thenReturn(List.of(new CustomerSearchResult(1, "Ana", "García", "ana@x.com", "Valladolid", 2.0)));
+
+        mockMvc.perform(get("/api/customers/search").param("q", "garcia").param("page", "-3").param("size", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].score").value(2.0));
+    }
+
+    @Test
+    void searchWithoutQueryIsRejected() throws Exception {
+        mockMvc.perform(get("/api/customers/search"))
+                .andExpect(status().isBadRequest());
+
+        verify(customerService, never()).search(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void withoutCursorParametersTheFullListIsReturned() throws Exception {
+        when(customerService.findALL()).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/customers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+
+        verify(customerService, never()).findPage(any(), anyInt());
+    }
+
+}
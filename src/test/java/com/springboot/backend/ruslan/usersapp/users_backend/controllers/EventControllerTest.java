@@ -0,0 +1,95 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TestSecurityConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent.Entity;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ChangeStream;
+
+@WebMvcTest(controllers = EventController.class, properties = "app.security.password.strength=4")
+@Import(TestSecurityConfig.class)
+class EventControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    @MockBean
+    private ChangeStream changeStream;
+
+    private String user() {
+        return TestSecurityConfig.bearer(keyRing, "juanp", "ROLE_USER");
+    }
+
+    @Test
+    void subscribeOpensAStreamForTheRequestedTypes() throws Exception {
+        when(changeStream.subscribe("juanp", EnumSet.of(Entity.USER, Entity.PRODUCT))).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/events").param("entities", "user, Product").accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Authorization", user()))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void subscribeRequiresAToken() throws Exception {
+        mockMvc.perform(get("/api/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(changeStream);
+    }
+
+    @Test
+    void unknownTypeIsRejected() throws Exception {
+        mockMvc.perform(get("/api/events").param("entities", "user,invoice").accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Authorization", user()))
+                .andExpect(status().isBadRequest());
+
+        verify(changeStream, never()).subscribe(anyString(), any());
+    }
+
+    @Test
+    void rolesCannotBeSubscribedTo() throws Exception {
+        mockMvc.perform(get("/api/events").param("entities", "user,role").accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Authorization", user()))
+                .andExpect(status().isBadRequest());
+
+        verify(changeStream, never()).subscribe(anyString(), any());
+    }
+
+    @Test
+    void userWithTooManyConnectionsGetsTooManyRequests() throws Exception {
+        when(changeStream.atUserLimit("juanp")).thenReturn(true);
+
+        mockMvc.perform(get("/api/events").accept(MediaType.TEXT_EVENT_STREAM).header("Authorization", user()))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void fullStreamGetsServiceUnavailable() throws Exception {
+        mockMvc.perform(get("/api/events").accept(MediaType.TEXT_EVENT_STREAM).header("Authorization", user()))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TestSecurityConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.config.JacksonFormatsConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.IProductService;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ProductCatalogCache;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ProductPriceService;
+
+@WebMvcTest(controllers = ProductController.class, properties = "app.security.password.strength=4")
+@Import({ TestSecurityConfig.class, JacksonFormatsConfig.class, ProductCatalogCache.class })
+class ProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @MockBean
+    private IProductRepository productRepository;
+
+    @MockBean
+    private IProductService productService;
+
+    @MockBean
+    private ProductPriceService priceService;
+
+    @BeforeEach
+    void setUp() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Teclado");
+        product.setPrice(25.0);
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        //Cada test empieza con una versión nueva del catálogo
+        catalogCache.invalidate();
+    }
+
+    @Test
+    void acceptsGzipHonoursQualityZero() {
+        assertThat(ProductController.acceptsGzip(null)).isFalse();
+        assertThat(ProductController.acceptsGzip("gzip")).isTrue();
+        assertThat(ProductController.acceptsGzip("deflate, GZIP;q=0.5, br")).isTrue();
+        assertThat(ProductController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ProductController.acceptsGzip("gzip; q=0.000")).isFalse();
+        assertThat(ProductController.acceptsGzip("gzip;q=0.01")).isTrue();
+        assertThat(ProductController.acceptsGzip("br, x-gzip")).isFalse();
+    }
+
+    @Test
+    void catalogIsServedWithAnETagAndAnswers304WhileUnchanged() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(jsonPath("$[0].name").value("Teclado"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        catalogCache.invalidate();
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        //Un 304 no consulta la BBDD: solo las dos respuestas 200 leen el catálogo
+        verify(productRepository, times(2)).findAll();
+    }
+
+    @Test
+    void gzipRepresentationHasItsOwnETag() throws Exception {
+        MvcResult plain = mockMvc.perform(get("/api/products")).andReturn();
+        MvcResult gzip = mockMvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        assertThat(gzip.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(plain.getResponse().getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.getResponse().getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(plain.getResponse().getContentAsString());
+        }
+        assertThat(String.join(",", gzip.getResponse().getHeaders(HttpHeaders.VARY))).contains(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    void catalogIsServedAsCborWithItsOwnETag() throws Exception {
+        MvcResult json = mockMvc.perform(get("/api/products")).andReturn();
+        MvcResult cbor = mockMvc.perform(get("/api/products").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        String etag = cbor.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotEqualTo(json.getResponse().getHeader(HttpHeaders.ETAG));
+        JsonNode products = cborMapper().readTree(cbor.getResponse().getContentAsByteArray());
+        assertThat(products.get(0).get("name").asText()).isEqualTo("Teclado");
+        assertThat(String.join(",", cbor.getResponse().getHeaders(HttpHeaders.VARY))).contains(HttpHeaders.ACCEPT);
+
+        mockMvc.perform(get("/api/products").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        //El ETag de CBOR no vale para JSON
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void productIsServedAsSmileWhenRequested() throws Exception {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Teclado");
+        product.setPrice(25.0);
+        when(productService.findById(1L)).thenReturn(Optional.of(product));
+
+        MvcResult smile = mockMvc.perform(get("/api/products/1").accept(JacksonFormatsConfig.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(JacksonFormatsConfig.APPLICATION_SMILE))
+                .andReturn();
+
+        JsonNode body = JacksonFormatsConfig.smileMapper(Jackson2ObjectMapperBuilder.json())
+                .readTree(smile.getResponse().getContentAsByteArray());
+        assertThat(body.get("name").asText()).isEqualTo("Teclado");
+    }
+
+    private static ObjectMapper cborMapper() {
+        return JacksonFormatsConfig.cborMapper(Jackson2ObjectMapperBuilder.json());
+    }
+
+    @Test
+    void pricesAreUpdatedByAnAdministrator() throws Exception {
+        when(priceService.updatePrices(any())).thenReturn(new PriceUpdateResult(1, List.of(99L)));
+
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"prices\":[{\"id\":1,\"price\":9.95},{\"id\":99,\"price\":5}]}")
+                        .header(HttpHeaders.AUTHORIZATION, TestSecurityConfig.bearer(keyRing, "admin", "ROLE_USER", "ROLE_ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.notFound[0]").value(99));
+    }
+
+    @Test
+    void pricesCannotBeUpdatedWithoutTheAdminRole() throws Exception {
+        String body = "{\"percentage\":5}";
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON).content(body)
+                        .header(HttpHeaders.AUTHORIZATION, TestSecurityConfig.bearer(keyRing, "juanp", "ROLE_USER")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(priceService);
+    }
+
+    @Test
+    void invalidPriceUpdatesAreRejected() throws Exception {
+        String admin = TestSecurityConfig.bearer(keyRing, "admin", "ROLE_USER", "ROLE_ADMIN");
+
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"prices\":[{\"id\":1,\"price\":9.95}],\"percentage\":5}").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.singleRule").exists());
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{}").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.singleRule").exists());
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"prices\":[null]}").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['prices[0]']").exists());
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"prices\":[{\"id\":1,\"price\":-1}]}").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['prices[0].price']").exists());
+        mockMvc.perform(patch("/api/products/prices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"percentage\":-100}").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.percentage").exists());
+
+        verifyNoInteractions(priceService);
+    }
+
+}
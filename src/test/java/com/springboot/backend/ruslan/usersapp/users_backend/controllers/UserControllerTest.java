@@ -0,0 +1,106 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.JwtKeyRing;
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.TestSecurityConfig;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CursorPage;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChanges;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserImportResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.SyncTokenExpiredException;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.UserImportService;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.UserService;
+
+@WebMvcTest(controllers = UserController.class, properties = "app.security.password.strength=4")
+@Import(TestSecurityConfig.class)
+class UserControllerTest {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtKeyRing keyRing;
+
+    @MockBean
+    private UserService service;
+
+    @MockBean
+    private UserImportService importService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchImportStreamsOneResultPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<List<UserImportResult>> results = invocation.getArgument(1);
+            results.accept(List.of(UserImportResult.created(1, 10L, "anag"),
+                    UserImportResult.invalid(2, null, Map.of("json", "Unexpected character"))));
+            return null;
+        }).when(importService).importUsers(any(), any(Consumer.class));
+
+        mockMvc.perform(post("/api/users/batch").contentType(NDJSON).content("{}\n{\n")
+                        .header("Authorization", TestSecurityConfig.bearer(keyRing, "admin", "ROLE_USER", "ROLE_ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andExpect(content().string(
+                        "{\"line\":1,\"status\":\"created\",\"id\":10,\"username\":\"anag\"}\n"
+                        + "{\"line\":2,\"status\":\"invalid\",\"errors\":{\"json\":\"Unexpected character\"}}\n"));
+    }
+
+    @Test
+    void batchImportRequiresAnAdministrator() throws Exception {
+        mockMvc.perform(post("/api/users/batch").contentType(NDJSON).content("{}\n")
+                        .header("Authorization", TestSecurityConfig.bearer(keyRing, "juanp", "ROLE_USER")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/users/batch").contentType(NDJSON).content("{}\n"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(importService);
+    }
+
+    @Test
+    void changesReturnsTheNextSyncToken() throws Exception {
+        when(service.findChanges(null, CursorPage.MAX_LIMIT))
+                .thenReturn(new UserChanges(List.of(), List.of(3L, 8L), "1714558530123456.42.0.0", false));
+
+        mockMvc.perform(get("/api/users/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted[1]").value(8))
+                .andExpect(jsonPath("$.next").value("1714558530123456.42.0.0"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void changesRejectsInvalidAndExpiredTokens() throws Exception {
+        when(service.findChanges("abc", 10)).thenThrow(new IllegalArgumentException("Token de sincronización no válido: abc"));
+        when(service.findChanges("0.0.0.0", 10)).thenThrow(new SyncTokenExpiredException("El token de sincronización ha caducado"));
+
+        mockMvc.perform(get("/api/users/changes").param("since", "abc").param("limit", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Token de sincronización no válido: abc"));
+        mockMvc.perform(get("/api/users/changes").param("since", "0.0.0.0").param("limit", "10"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.error").value("El token de sincronización ha caducado"));
+    }
+
+}
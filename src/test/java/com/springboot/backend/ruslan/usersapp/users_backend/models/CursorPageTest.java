@@ -0,0 +1,41 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CursorPageTest {
+
+    @Test
+    void limitOfUsesTheDefaultAndClampsToTheAllowedRange() {
+        assertThat(CursorPage.limitOf(null)).isEqualTo(CursorPage.DEFAULT_LIMIT);
+        assertThat(CursorPage.limitOf(0)).isEqualTo(1);
+        assertThat(CursorPage.limitOf(-5)).isEqualTo(1);
+        assertThat(CursorPage.limitOf(50)).isEqualTo(50);
+        assertThat(CursorPage.limitOf(100_000)).isEqualTo(CursorPage.MAX_LIMIT);
+    }
+
+    @Test
+    void afterOfStartsFromTheBeginningWithoutCursor() {
+        assertThat(CursorPage.afterOf(null)).isZero();
+        assertThat(CursorPage.afterOf(42L)).isEqualTo(42L);
+    }
+
+    @Test
+    void fullPageCarriesTheLastIdAsNextCursor() {
+        CursorPage<Long> page = CursorPage.of(List.of(3L, 7L, 9L), 3, id -> id);
+
+        assertThat(page.content()).containsExactly(3L, 7L, 9L);
+        assertThat(page.nextCursor()).isEqualTo(9L);
+        assertThat(page.limit()).isEqualTo(3);
+    }
+
+    @Test
+    void shortPageIsTheLastOne() {
+        assertThat(CursorPage.of(List.of(3L, 7L), 3, id -> id).nextCursor()).isNull();
+        assertThat(CursorPage.of(List.<Long>of(), 3, id -> id).nextCursor()).isNull();
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+
+class SparseFieldsetTest {
+
+    private final SparseFieldset fields = SparseFieldset.of(Customer.class, "id", "name", "lastName:lastname", "email");
+
+    @Test
+    void idComesFirstAndRepeatedFieldsAreDropped() {
+        assertThat(fields.parse("email, name,,email")).containsExactly("id", "email", "name");
+        assertThat(fields.parse("name,id")).containsExactly("id", "name");
+        assertThat(fields.parse("")).containsExactly("id");
+    }
+
+    @Test
+    void unknownFieldsAreRejected() {
+        assertThatThrownBy(() -> fields.parse("name,password"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("password")
+                .hasMessageContaining("id,name,lastName,email");
+        //Solo vale el nombre del JSON, no el del atributo JPA
+        assertThatThrownBy(() -> fields.parse("lastname")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void jsonNamesMapToTheirJpaAttribute() {
+        assertThat(fields.entity()).isEqualTo(Customer.class);
+        assertThat(fields.attribute("lastName")).isEqualTo("lastname");
+        assertThat(fields.attribute("email")).isEqualTo("email");
+        assertThat(fields.attribute("password")).isNull();
+    }
+
+    @Test
+    void rowsSerializeOnlyTheRequestedFieldsInOrder() throws Exception {
+        SerializedString[] names = { new SerializedString("id"), new SerializedString("email"), new SerializedString("created") };
+        SparseRow row = new SparseRow(names, new Object[] { 7L, "ana@x.com", new Date(0) });
+
+        assertThat(new ObjectMapper().writeValueAsString(row)).isEqualTo("{\"id\":7,\"email\":\"ana@x.com\",\"created\":0}");
+        assertThat(row.get(1)).isEqualTo("ana@x.com");
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.models;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChanges.Cursor;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserChanges.Token;
+
+class UserChangesTest {
+
+    @Test
+    void tokenSurvivesEncodingWithMicrosecondPrecision() {
+        Token token = new Token(new Cursor(Instant.parse("2024-05-01T10:15:30.123456Z"), 42),
+                new Cursor(Instant.parse("2024-04-30T08:00:00Z"), 7));
+
+        String encoded = token.encode();
+
+        assertThat(encoded).isEqualTo("1714558530123456.42.1714464000000000.7");
+        assertThat(Token.parse(encoded)).isEqualTo(token);
+    }
+
+    @Test
+    void startTokenEncodesAsZeros() {
+        assertThat(new Token(Cursor.START, Cursor.START).encode()).isEqualTo("0.0.0.0");
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThatThrownBy(() -> Token.parse("1.2.3")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Token.parse("1.2.3.4.5")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Token.parse("a.2.3.4")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Token de sincronización no válido: a.2.3.4");
+        assertThatThrownBy(() -> Token.parse("")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorsAreOrderedByInstantAndThenById() {
+        Instant at = Instant.parse("2024-05-01T10:00:00Z");
+        Cursor first = new Cursor(at, 5);
+        Cursor second = new Cursor(at, 9);
+        Cursor later = new Cursor(at.plusNanos(1000), 1);
+
+        assertThat(first).isLessThan(second);
+        assertThat(second).isLessThan(later);
+        assertThat(Cursor.max(later, first)).isEqualTo(later);
+        assertThat(Cursor.max(first, second)).isEqualTo(second);
+    }
+
+}
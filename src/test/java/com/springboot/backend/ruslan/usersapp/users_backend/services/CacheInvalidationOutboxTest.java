@@ -0,0 +1,187 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.CacheInvalidation;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent.Entity;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICacheInvalidationRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CacheInvalidationOutboxTest {
+
+    private static final String NODE = "node-a";
+
+    private final ICacheInvalidationRepository repository = mock(ICacheInvalidationRepository.class);
+
+    private final LocalCacheInvalidator invalidator = mock(LocalCacheInvalidator.class);
+
+    private final ChangeStream changeStream = mock(ChangeStream.class);
+
+    /**
+     * Filas confirmadas de la tabla cache_invalidations, por id.
+     */
+    private final NavigableMap<Long, CacheInvalidation> table = new TreeMap<>();
+
+    /**
+     * Marca desde la que se ha pedido cada lote (el "id mayor que" de la consulta).
+     */
+    private final List<Long> reads = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findMaxId()).thenAnswer(invocation -> table.isEmpty() ? 0L : table.lastKey());
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            reads.add(after);
+            return table.tailMap(after, false).values().stream().limit(limit.max()).toList();
+        });
+    }
+
+    private CacheInvalidationOutbox outbox(int batchSize, Duration gapTimeout) {
+        return new CacheInvalidationOutbox(repository, invalidator, changeStream, new SimpleMeterRegistry(),
+                NODE, batchSize, gapTimeout, Duration.ofHours(1));
+    }
+
+    private void commit(long id, String origin) {
+        CacheInvalidation row = new CacheInvalidation(Entity.PRODUCT, String.valueOf(id), origin, Instant.now());
+        ReflectionTestUtils.setField(row, "id", id);
+        table.put(id, row);
+    }
+
+    @Test
+    void firstPollStartsFromTheLastExistingRow() {
+        commit(1, "node-b");
+        CacheInvalidationOutbox outbox = outbox(10, Duration.ofHours(1));
+
+        assertThat(outbox.poll()).isZero();
+        assertThat(outbox.poll()).isZero();
+
+        assertThat(reads).containsExactly(1L);
+        verify(invalidator, never()).apply(any(), anyString());
+    }
+
+    @Test
+    void rowsCommittedLateBelowAGapAreAppliedOnceWhenTheyAppear() {
+        commit(1, "node-b");
+        CacheInvalidationOutbox outbox = outbox(10, Duration.ofHours(1));
+        outbox.poll();
+
+        //La transacción del id 2 aún no ha confirmado cuando ya es visible el 3
+        commit(3, "node-b");
+        assertThat(outbox.poll()).isEqualTo(1);
+        verify(invalidator).apply(Entity.PRODUCT, "3");
+
+        commit(2, "node-b");
+        assertThat(outbox.poll()).isEqualTo(1);
+        verify(invalidator).apply(Entity.PRODUCT, "2");
+        verify(invalidator).apply(Entity.PRODUCT, "3");
+        verify(changeStream).publish(Entity.PRODUCT, "2");
+
+        //Cerrado el hueco, la marca de agua avanza hasta el 3 y no se vuelve a leer nada
+        assertThat(outbox.poll()).isZero();
+        assertThat(reads).containsExactly(1L, 1L, 3L);
+    }
+
+    @Test
+    void gapIsSkippedAfterTheGapTimeout() {
+        commit(1, "node-b");
+        CacheInvalidationOutbox outbox = outbox(10, Duration.ZERO);
+        outbox.poll();
+
+        commit(3, "node-b");
+        assertThat(outbox.poll()).isEqualTo(1);
+        assertThat(outbox.poll()).isZero();
+
+        assertThat(reads).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void burstIsReadInBatchesUntilAShortOne() {
+        commit(1, "node-b");
+        CacheInvalidationOutbox outbox = outbox(2, Duration.ofHours(1));
+        outbox.poll();
+
+        for (long id = 2; id <= 6; id++) {
+            commit(id, "node-b");
+        }
+
+        assertThat(outbox.poll()).isEqualTo(5);
+        assertThat(reads).containsExactly(1L, 3L, 5L);
+        for (long id = 2; id <= 6; id++) {
+            verify(invalidator).apply(Entity.PRODUCT, String.valueOf(id));
+        }
+    }
+
+    @Test
+    void ownRowsAreCountedButNotAppliedAgain() {
+        commit(1, "node-b");
+        CacheInvalidationOutbox outbox = outbox(10, Duration.ofHours(1));
+        outbox.poll();
+
+        commit(2, NODE);
+        commit(3, "node-b");
+
+        assertThat(outbox.poll()).isEqualTo(2);
+        verify(invalidator, never()).apply(Entity.PRODUCT, "2");
+        verify(changeStream, never()).publish(Entity.PRODUCT, "2");
+        verify(invalidator).apply(Entity.PRODUCT, "3");
+    }
+
+    @Test
+    void failedLocalInvalidationIsStillPublishedToClients() {
+        commit(1, "node-b");
+        CacheInvalidationOutbox outbox = outbox(10, Duration.ofHours(1));
+        outbox.poll();
+        doThrow(new IllegalStateException("caché cerrada")).when(invalidator).apply(eq(Entity.PRODUCT), anyString());
+
+        commit(2, "node-b");
+
+        assertThat(outbox.poll()).isEqualTo(1);
+        verify(changeStream).publish(Entity.PRODUCT, "2");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishStoresOneRowPerKeyOrASingleRowForAllEntities() {
+        CacheInvalidationOutbox outbox = outbox(10, Duration.ofHours(1));
+        ArgumentCaptor<List<CacheInvalidation>> rows = ArgumentCaptor.forClass(List.class);
+
+        outbox.publish(EntityChangeEvent.users("anag", "pedro"));
+        outbox.publish(EntityChangeEvent.allProducts());
+
+        verify(repository, times(2)).saveAll(rows.capture());
+        assertThat(rows.getAllValues().get(0)).extracting(CacheInvalidation::getKey).containsExactly("anag", "pedro");
+        assertThat(rows.getAllValues().get(0)).extracting(CacheInvalidation::getOrigin).containsOnly(NODE);
+        assertThat(rows.getAllValues().get(1)).singleElement().satisfies(row -> {
+            assertThat(row.getEntity()).isEqualTo(Entity.PRODUCT);
+            assertThat(row.getKey()).isNull();
+        });
+    }
+
+}
@@ -0,0 +1,239 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent.Entity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChangeStreamTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    //Un solo hilo de envío y buffer de 2 avisos por suscriptor
+    private final ChangeStream stream = new ChangeStream(registry, 2, Duration.ofHours(1), Duration.ofMinutes(30),
+            1, 3, 2, Duration.ofHours(1));
+
+    @AfterEach
+    void shutdown() {
+        stream.destroy();
+    }
+
+    private static String change(String json) {
+        return "event:change\ndata:" + json + "\n\n";
+    }
+
+    /**
+     * Conexión simulada: conecta el SseEmitter a un Handler que guarda lo que se escribe en la respuesta.
+     * El primer envío se queda bloqueado hasta release(), como un cliente que tarda en leer, para que los avisos
+     * siguientes se acumulen en el buffer del suscriptor.
+     */
+    private static final class Client {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private volatile Runnable onCompletion;
+
+        Client(SseEmitter emitter, boolean blockFirstSend) throws Exception {
+            if (!blockFirstSend) {
+                released.countDown();
+            }
+            Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+            Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[] { handlerType },
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("onCompletion")) {
+                            onCompletion = (Runnable) args[0];
+                        }
+                        if (method.getName().equals("send") && args.length == 1) {
+                            StringBuilder data = new StringBuilder();
+                            for (Object item : (Set<?>) args[0]) {
+                                data.append(((ResponseBodyEmitter.DataWithMediaType) item).getData());
+                            }
+                            sending.countDown();
+                            released.await(5, TimeUnit.SECONDS);
+                            received.add(data.toString());
+                        }
+                        return null;
+                    });
+            Method initialize = ResponseBodyEmitter.class.getDeclaredMethod("initialize", handlerType);
+            initialize.setAccessible(true);
+            initialize.invoke(emitter, handler);
+        }
+
+        void awaitSending() throws InterruptedException {
+            assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        //El contenedor avisa de que la conexión se ha cerrado
+        void close() {
+            onCompletion.run();
+        }
+
+        List<String> await(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (received.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50); //Margen para detectar avisos de más
+            return received;
+        }
+    }
+
+    @Test
+    void repeatedChangesOfTheSameEntityArriveOnce() throws Exception {
+        Client client = new Client(stream.subscribe("admin", Set.of()), true);
+        stream.publish(Entity.PRODUCT, "1");
+        client.awaitSending();
+
+        stream.publish(Entity.PRODUCT, "2");
+        stream.publish(Entity.PRODUCT, "2");
+        stream.onChange(EntityChangeEvent.customer(5L));
+        client.release();
+
+        assertThat(client.await(3)).containsExactly(
+                change("{\"entity\":\"product\",\"id\":\"1\"}"),
+                change("{\"entity\":\"product\",\"id\":\"2\"}"),
+                change("{\"entity\":\"customer\",\"id\":\"5\"}"));
+    }
+
+    @Test
+    void fullBufferIsReplacedByASingleChangeOfTheWholeType() throws Exception {
+        Client client = new Client(stream.subscribe("admin", Set.of()), true);
+        stream.publish(Entity.PRODUCT, "1");
+        client.awaitSending();
+
+        stream.publish(Entity.PRODUCT, "2");
+        stream.publish(Entity.PRODUCT, "3");
+        stream.publish(Entity.PRODUCT, "4");
+        stream.publish(Entity.PRODUCT, "5");
+        client.release();
+
+        assertThat(client.await(2)).containsExactly(
+                change("{\"entity\":\"product\",\"id\":\"1\"}"),
+                change("{\"entity\":\"product\"}"));
+        assertThat(registry.get("events.coalesced").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void changeOfAllEntitiesReplacesThePendingOnesOfThatType() throws Exception {
+        Client client = new Client(stream.subscribe("admin", Set.of()), true);
+        stream.publish(Entity.PRODUCT, "1");
+        client.awaitSending();
+
+        stream.publish(Entity.PRODUCT, "2");
+        stream.onChange(EntityChangeEvent.allProducts());
+        stream.publish(Entity.PRODUCT, "3");
+        client.release();
+
+        assertThat(client.await(2)).containsExactly(
+                change("{\"entity\":\"product\",\"id\":\"1\"}"),
+                change("{\"entity\":\"product\"}"));
+        assertThat(registry.get("events.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    void subscribersOnlyReceiveTheirTypesAndUsersAreIdentifiedByUsername() throws Exception {
+        Client client = new Client(stream.subscribe("admin", Set.of(Entity.USER)), false);
+
+        stream.publish(Entity.PRODUCT, "1");
+        stream.onChange(EntityChangeEvent.users("ju\"an"));
+
+        assertThat(client.await(1)).containsExactly(change("{\"entity\":\"user\",\"username\":\"ju\\\"an\"}"));
+    }
+
+    @Test
+    void subscriptionsAreLimitedPerUserAndInTotal() {
+        assertThat(stream.subscribe("admin", Set.of())).isNotNull();
+        assertThat(stream.atUserLimit("admin")).isFalse();
+        assertThat(stream.subscribe("admin", Set.of())).isNotNull();
+        assertThat(stream.atUserLimit("admin")).isTrue();
+        assertThat(stream.subscribe("admin", Set.of())).isNull();
+
+        assertThat(stream.subscribe("juanp", Set.of())).isNotNull();
+        assertThat(stream.subscribe("pedro", Set.of())).isNull();
+    }
+
+    @Test
+    void closedConnectionsFreeTheirPlaceOnce() throws Exception {
+        Client first = new Client(stream.subscribe("admin", Set.of()), false);
+        assertThat(stream.subscribe("admin", Set.of())).isNotNull();
+        assertThat(stream.atUserLimit("admin")).isTrue();
+
+        first.close();
+        first.close();
+
+        assertThat(stream.atUserLimit("admin")).isFalse();
+        assertThat(stream.subscribe("admin", Set.of())).isNotNull();
+        assertThat(stream.subscribe("admin", Set.of())).isNull();
+        assertThat(stream.subscribe("juanp", Set.of())).isNotNull();
+        assertThat(stream.subscribe("pedro", Set.of())).isNull();
+    }
+
+    @Test
+    void concurrentSubscriptionsNeverExceedTheLimits() throws Exception {
+        assertThat(subscribeConcurrently(stream, i -> "admin")).isEqualTo(2);
+        stream.destroy();
+
+        ChangeStream other = new ChangeStream(registry, 2, Duration.ofHours(1), Duration.ofMinutes(30), 1, 3, 2, Duration.ofHours(1));
+        try {
+            assertThat(subscribeConcurrently(other, i -> "user" + i)).isEqualTo(3);
+        } finally {
+            other.destroy();
+        }
+    }
+
+    private static int subscribeConcurrently(ChangeStream stream, IntFunction<String> owner) throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger opened = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                String name = owner.apply(i);
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (stream.subscribe(name, Set.of()) != null) {
+                        opened.incrementAndGet();
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+        return opened.get();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class CustomerExportServiceImplTest {
+
+    private static String csv(Object value) throws IOException {
+        StringWriter writer = new StringWriter();
+        CustomerExportServiceImpl.writeCsv(writer, value);
+        return writer.toString();
+    }
+
+    @Test
+    void formulasArePrefixedWithAQuote() throws IOException {
+        assertThat(csv("=SUM(A1:A9)")).isEqualTo("'=SUM(A1:A9)");
+        assertThat(csv("@cmd")).isEqualTo("'@cmd");
+        assertThat(csv("+A1")).isEqualTo("'+A1");
+        assertThat(csv("-2+3+cmd|' /C calc'!A0")).isEqualTo("'-2+3+cmd|' /C calc'!A0");
+        assertThat(csv("\tcalc")).isEqualTo("'\tcalc");
+        assertThat(csv("=1")).isEqualTo("'=1");
+    }
+
+    @Test
+    void phonesAndNumbersAreLeftUnchanged() throws IOException {
+        assertThat(csv("+34 600 000 000")).isEqualTo("+34 600 000 000");
+        assertThat(csv("+1 (555) 010-0199")).isEqualTo("+1 (555) 010-0199");
+        assertThat(csv("-5")).isEqualTo("-5");
+        assertThat(csv("-12.5")).isEqualTo("-12.5");
+        assertThat(csv("600000000")).isEqualTo("600000000");
+        //Un signo sin cifras no es un número
+        assertThat(csv("-")).isEqualTo("'-");
+        assertThat(csv("- Calle Mayor")).isEqualTo("'- Calle Mayor");
+    }
+
+    @Test
+    void separatorsAndQuotesAreQuoted() throws IOException {
+        assertThat(csv("Madrid, España")).isEqualTo("\"Madrid, España\"");
+        assertThat(csv("O\"Brien")).isEqualTo("\"O\"\"Brien\"");
+        assertThat(csv("=A1,B1")).isEqualTo("\"'=A1,B1\"");
+        assertThat(csv(null)).isEmpty();
+        assertThat(csv(28001L)).isEqualTo("28001");
+    }
+
+}
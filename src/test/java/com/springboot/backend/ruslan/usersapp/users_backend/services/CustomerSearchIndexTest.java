@@ -0,0 +1,85 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Customer;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.CustomerSearchResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerRepository;
+
+class CustomerSearchIndexTest {
+
+    private final CustomerSearchIndex index = new CustomerSearchIndex(mock(ICustomerRepository.class));
+
+    private static Customer customer(long id, String name, String lastname, String email, String city) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setName(name);
+        customer.setLastName(lastname);
+        customer.setEmail(email);
+        customer.setCity(city);
+        return customer;
+    }
+
+    @BeforeEach
+    void setUp() {
+        index.index(customer(1, "Ana", "García", "ana@correo.es", "Valladolid"));
+        index.index(customer(2, "Pedro", "Gómez", "pedro@correo.es", "Sevilla"));
+        index.index(customer(3, "Marta", "López", "marta@correo.es", "Valencia"));
+    }
+
+    @Test
+    void termsAreLowercasedWithoutAccentsAndSplitOnSeparators() {
+        assertThat(CustomerSearchIndex.terms("  José-María  GARCÍA, ana@correo.es ")).containsExactly(
+                "jose", "maria", "garcia", "ana", "correo", "es");
+        assertThat(CustomerSearchIndex.terms(null)).isEmpty();
+        assertThat(CustomerSearchIndex.terms(" ,; ")).isEmpty();
+    }
+
+    @Test
+    void gramsArePaddedDistinctAndSorted() {
+        //"  ab", " ab", "ab " con el relleno; repetir la palabra no añade trigramas
+        assertThat(CustomerSearchIndex.grams("ab")).hasSize(3);
+        assertThat(CustomerSearchIndex.grams("ab", "ab")).isEqualTo(CustomerSearchIndex.grams("ab"));
+        assertThat(CustomerSearchIndex.grams("garcia")).isSorted();
+        assertThat(CustomerSearchIndex.grams()).isEmpty();
+    }
+
+    @Test
+    void findsExactPrefixAndMisspelledMatches() {
+        assertThat(index.search("garcia", 0, 10)).extracting(CustomerSearchResult::id).containsExactly(1L);
+        assertThat(index.search("Gar", 0, 10)).extracting(CustomerSearchResult::id).first().isEqualTo(1L);
+        assertThat(index.search("gacria", 0, 10)).extracting(CustomerSearchResult::id).contains(1L);
+        assertThat(index.search("sevilla pedro", 0, 10)).extracting(CustomerSearchResult::id).first().isEqualTo(2L);
+        assertThat(index.search("zzzz", 0, 10)).isEmpty();
+        assertThat(index.search("", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void prefixMatchesRankAboveFuzzyOnes() {
+        //"val" es prefijo de Valladolid y de Valencia; ambos puntúan por encima de 1 y se desempatan por id
+        assertThat(index.search("val", 0, 10)).extracting(CustomerSearchResult::id).containsExactly(1L, 3L);
+        assertThat(index.search("val", 0, 10)).allSatisfy(result -> assertThat(result.score()).isGreaterThan(1.0));
+    }
+
+    @Test
+    void pagesSliceTheRankedResults() {
+        assertThat(index.search("correo", 0, 2)).extracting(CustomerSearchResult::id).containsExactly(1L, 2L);
+        assertThat(index.search("correo", 1, 2)).extracting(CustomerSearchResult::id).containsExactly(3L);
+        assertThat(index.search("correo", 2, 2)).isEmpty();
+        //page * size no cabe en un int
+        assertThat(index.search("correo", Integer.MAX_VALUE, 500)).isEmpty();
+    }
+
+    @Test
+    void reindexedCustomerIsFoundByItsNewDataOnly() {
+        index.index(customer(2, "Pedro", "Ruiz", "pedro@correo.es", "Sevilla"));
+
+        assertThat(index.search("ruiz", 0, 10)).extracting(CustomerSearchResult::id).containsExactly(2L);
+        assertThat(index.search("gomez", 0, 10)).isEmpty();
+    }
+
+}
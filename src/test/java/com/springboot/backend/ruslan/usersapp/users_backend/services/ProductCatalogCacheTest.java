@@ -0,0 +1,43 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ProductCatalogCache.Format;
+
+class ProductCatalogCacheTest {
+
+    @Test
+    void missingOrInvalidAcceptFallsBackToJson() {
+        assertThat(Format.negotiate(null)).isEqualTo(Format.JSON);
+        assertThat(Format.negotiate(" ")).isEqualTo(Format.JSON);
+        assertThat(Format.negotiate("application/cbor;q=x")).isEqualTo(Format.JSON);
+        assertThat(Format.negotiate("not a media type")).isEqualTo(Format.JSON);
+        assertThat(Format.negotiate("text/html, application/xml")).isEqualTo(Format.JSON);
+    }
+
+    @Test
+    void binaryFormatsAreChosenWhenRequested() {
+        assertThat(Format.negotiate("application/cbor")).isEqualTo(Format.CBOR);
+        assertThat(Format.negotiate("application/x-jackson-smile")).isEqualTo(Format.SMILE);
+        assertThat(Format.negotiate("application/json")).isEqualTo(Format.JSON);
+    }
+
+    @Test
+    void wildcardsPreferJson() {
+        assertThat(Format.negotiate("*/*")).isEqualTo(Format.JSON);
+        assertThat(Format.negotiate("application/*")).isEqualTo(Format.JSON);
+        //El tipo concreto gana al comodín aunque aparezca después
+        assertThat(Format.negotiate("*/*, application/cbor")).isEqualTo(Format.CBOR);
+    }
+
+    @Test
+    void qualityDecidesAndZeroExcludes() {
+        assertThat(Format.negotiate("application/json;q=0.5, application/cbor")).isEqualTo(Format.CBOR);
+        assertThat(Format.negotiate("application/cbor;q=0.2, application/x-jackson-smile;q=0.8")).isEqualTo(Format.SMILE);
+        assertThat(Format.negotiate("application/cbor;q=0, */*")).isEqualTo(Format.JSON);
+        assertThat(Format.negotiate("application/json;q=0, application/x-jackson-smile;q=0.1")).isEqualTo(Format.SMILE);
+    }
+
+}
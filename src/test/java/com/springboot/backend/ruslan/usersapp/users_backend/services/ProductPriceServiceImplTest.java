@@ -0,0 +1,96 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.Product;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateRequest;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.PriceUpdateResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.services.ProductCatalogCache.Format;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+class ProductPriceServiceImplTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final Cache secondLevelCache = mock(Cache.class);
+
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+
+    private final ProductCatalogCache catalogCache = new ProductCatalogCache(mock(IProductRepository.class),
+            Jackson2ObjectMapperBuilder.json().build(), new MappingJackson2CborHttpMessageConverter(),
+            new MappingJackson2SmileHttpMessageConverter());
+
+    private ProductPriceServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        service = new ProductPriceServiceImpl(jdbcTemplate, mock(PlatformTransactionManager.class), entityManagerFactory,
+                catalogCache, events, 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pricesByIdReportMissingProductsAndEvictOnlyThoseIds() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][] { { 1, 0, Statement.SUCCESS_NO_INFO } });
+        String etag = catalogCache.listETag(Format.JSON, false);
+
+        PriceUpdateResult result = service.updatePrices(new PriceUpdateRequest(List.of(
+                new PriceUpdateRequest.Price(1L, 9.95), new PriceUpdateRequest.Price(7L, 5.0), new PriceUpdateRequest.Price(3L, 20.0)),
+                null, null));
+
+        assertThat(result.updated()).isEqualTo(2);
+        assertThat(result.notFound()).containsExactly(7L);
+        verify(secondLevelCache).evict(Product.class, 1L);
+        verify(secondLevelCache).evict(Product.class, 7L);
+        verify(secondLevelCache).evict(Product.class, 3L);
+        verify(events).publishEvent(EntityChangeEvent.products(List.of(1L, 7L, 3L)));
+        assertThat(catalogCache.listETag(Format.JSON, false)).isNotEqualTo(etag);
+    }
+
+    @Test
+    void percentageUpdatesTheFilteredProductsWithASingleStatement() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        when(jdbcTemplate.update(sql.capture(), any(Object[].class))).thenReturn(4);
+        String etag = catalogCache.listETag(Format.JSON, false);
+
+        PriceUpdateResult result = service.updatePrices(new PriceUpdateRequest(null, 10.0,
+                new PriceUpdateRequest.Filter(5.0, null, "Mon_itor")));
+
+        assertThat(result.updated()).isEqualTo(4);
+        assertThat(result.notFound()).isNull();
+        assertThat(sql.getValue()).endsWith("where price is not null and price >= ? and lower(name) like ?");
+        verify(jdbcTemplate).update(eq(sql.getValue()), eq(1.1), eq(5.0), eq("%mon\\_itor%"));
+        verify(secondLevelCache).evict(Product.class);
+        verify(events).publishEvent(EntityChangeEvent.allProducts());
+        assertThat(catalogCache.listETag(Format.JSON, false)).isNotEqualTo(etag);
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.entities.RollupWatermark;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.ICustomerSalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IInvoiceRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IMonthlySalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IProductSalesRepository;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.IRollupWatermarkRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SalesRollupJobTest {
+
+    private final IInvoiceRepository invoiceRepository = mock(IInvoiceRepository.class);
+
+    private final IRollupWatermarkRepository watermarkRepository = mock(IRollupWatermarkRepository.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RollupWatermark watermark = new RollupWatermark(SalesRollupJob.WATERMARK);
+
+    /**
+     * Ids de las facturas confirmadas.
+     */
+    private final TreeSet<Long> invoices = new TreeSet<>();
+
+    @BeforeEach
+    void setUp() {
+        when(watermarkRepository.findLockedByName(SalesRollupJob.WATERMARK)).thenReturn(Optional.of(watermark));
+        when(invoiceRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return invoices.tailSet(after, false).stream().limit(limit.max()).toList();
+        });
+    }
+
+    private SalesRollupJob job(int batchSize, int maxBatchesPerRun, Duration gapTimeout) {
+        return new SalesRollupJob(invoiceRepository, mock(ICustomerSalesRepository.class), mock(IProductSalesRepository.class),
+                mock(IMonthlySalesRepository.class), watermarkRepository, mock(PlatformTransactionManager.class), registry,
+                batchSize, maxBatchesPerRun, gapTimeout);
+    }
+
+    private void commit(long... ids) {
+        for (long id : ids) {
+            invoices.add(id);
+        }
+    }
+
+    private double skipped() {
+        return registry.get("analytics.rollup.gaps.skipped").counter().count();
+    }
+
+    @Test
+    void consecutiveInvoicesAdvanceTheWatermark() {
+        SalesRollupJob job = job(10, 20, Duration.ofHours(1));
+        commit(1, 2, 3);
+
+        assertThat(job.catchUp()).isEqualTo(3);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(3);
+        verify(invoiceRepository).sumByCustomer(0L, 3L);
+        verify(invoiceRepository).sumByProduct(0L, 3L);
+        verify(invoiceRepository).sumByMonth(0L, 3L);
+
+        commit(4);
+        assertThat(job.catchUp()).isEqualTo(1);
+        verify(invoiceRepository).sumByCustomer(3L, 4L);
+    }
+
+    @Test
+    void gapWaitsForTheMissingInvoice() {
+        SalesRollupJob job = job(10, 20, Duration.ofHours(1));
+        commit(1, 3, 4);
+
+        assertThat(job.catchUp()).isEqualTo(1);
+        assertThat(job.catchUp()).isZero();
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(1);
+
+        //La factura 2 se confirma dentro de gap-timeout y se suma con las siguientes
+        commit(2);
+        assertThat(job.catchUp()).isEqualTo(3);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(4);
+        verify(invoiceRepository).sumByCustomer(1L, 4L);
+        assertThat(skipped()).isZero();
+    }
+
+    @Test
+    void expiredGapIsSkippedAndCounted() {
+        SalesRollupJob job = job(10, 20, Duration.ZERO);
+        commit(1, 4, 5);
+
+        assertThat(job.catchUp()).isEqualTo(3);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(5);
+        verify(invoiceRepository).sumByCustomer(0L, 5L);
+        assertThat(skipped()).isEqualTo(2);
+    }
+
+    @Test
+    void secondGapWaitsForItsOwnTimeout() throws Exception {
+        SalesRollupJob job = job(10, 20, Duration.ofMillis(200));
+        commit(1, 3, 4, 6);
+
+        assertThat(job.catchUp()).isEqualTo(1);
+        Thread.sleep(250);
+
+        //El hueco del 2 ha caducado; el del 5 se ve por primera vez y empieza su propia espera
+        assertThat(job.catchUp()).isEqualTo(2);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(4);
+        assertThat(skipped()).isEqualTo(1);
+
+        Thread.sleep(250);
+        assertThat(job.catchUp()).isEqualTo(1);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(6);
+        assertThat(skipped()).isEqualTo(2);
+    }
+
+    @Test
+    void eachRunProcessesAtMostMaxBatchesPerRun() {
+        SalesRollupJob job = job(2, 2, Duration.ofHours(1));
+        commit(1, 2, 3, 4, 5, 6, 7);
+
+        assertThat(job.catchUp()).isEqualTo(4);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(4);
+
+        assertThat(job.catchUp()).isEqualTo(3);
+        assertThat(watermark.getLastInvoiceId()).isEqualTo(7);
+        assertThat(job.catchUp()).isZero();
+        verify(invoiceRepository).sumByCustomer(4L, 6L);
+        verify(invoiceRepository).sumByCustomer(6L, 7L);
+    }
+
+    @Test
+    void noInvoicesLeaveTheWatermarkUntouched() {
+        SalesRollupJob job = job(10, 20, Duration.ofHours(1));
+
+        assertThat(job.catchUp()).isZero();
+        assertThat(watermark.getLastInvoiceId()).isZero();
+        verify(invoiceRepository, never()).sumByCustomer(anyLong(), anyLong());
+    }
+
+}
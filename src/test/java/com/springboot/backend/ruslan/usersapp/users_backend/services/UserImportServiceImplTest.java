@@ -0,0 +1,201 @@
+package com.springboot.backend.ruslan.usersapp.users_backend.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.springboot.backend.ruslan.usersapp.users_backend.auth.AdaptiveBCryptPasswordEncoder;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.EntityChangeEvent;
+import com.springboot.backend.ruslan.usersapp.users_backend.models.UserImportResult;
+import com.springboot.backend.ruslan.usersapp.users_backend.repositories.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+class UserImportServiceImplTest {
+
+    private final AdaptiveBCryptPasswordEncoder passwordEncoder = new AdaptiveBCryptPasswordEncoder(4, 2, 100, new SimpleMeterRegistry());
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+
+    private final AtomicLong ids = new AtomicLong(100);
+
+    /**
+     * Lotes de inserción que ha recibido la base de datos, con los nombres de usuario de cada uno.
+     */
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private UserImportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        RoleRegistry roleRegistry = mock(RoleRegistry.class);
+        when(roleRegistry.findByName(anyString())).thenReturn(Optional.empty());
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of("Taken"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        //Simula la base de datos: un lote con el usuario "boom" incumple una restricción y no se guarda nada de él
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    KeyHolder keys = invocation.getArgument(2);
+                    List<String> usernames = usernames(setter);
+                    batches.add(usernames);
+                    if (usernames.contains("boom")) {
+                        throw new DataIntegrityViolationException("Data too long for column 'lastname'");
+                    }
+                    for (int i = 0; i < usernames.size(); i++) {
+                        Map<String, Object> key = new HashMap<>();
+                        key.put("GENERATED_KEY", ids.incrementAndGet());
+                        keys.getKeyList().add(key);
+                    }
+                    return new int[usernames.size()];
+                });
+
+        service = new UserImportServiceImpl(Jackson2ObjectMapperBuilder.json().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(), passwordEncoder, roleRegistry, userRepository,
+                jdbcTemplate, mock(PlatformTransactionManager.class), events, 50, 400);
+    }
+
+    @AfterEach
+    void shutdown() {
+        passwordEncoder.destroy();
+    }
+
+    private static List<String> usernames(BatchPreparedStatementSetter setter) throws Exception {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < setter.getBatchSize(); i++) {
+            PreparedStatement ps = mock(PreparedStatement.class);
+            setter.setValues(ps, i);
+            ArgumentCaptor<String> username = ArgumentCaptor.forClass(String.class);
+            verify(ps).setString(eq(10), username.capture());
+            usernames.add(username.getValue());
+        }
+        return usernames;
+    }
+
+    private static String user(String username, String email) {
+        return "{\"name\":\"Ana\",\"lastname\":\"Garcia\",\"birthday\":\"1990-01-01\",\"gender\":\"F\",\"country\":\"ES\","
+                + "\"municipality\":\"Valladolid\",\"province\":\"Valladolid\",\"phone\":600000000,"
+                + "\"email\":\"" + email + "\",\"username\":\"" + username + "\",\"password\":\"12345\"}";
+    }
+
+    private List<UserImportResult> importLines(String... lines) throws Exception {
+        List<UserImportResult> results = new ArrayList<>();
+        byte[] ndjson = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+        service.importUsers(new ByteArrayInputStream(ndjson), results::addAll);
+        return results;
+    }
+
+    private static Map<Long, String> statusByLine(List<UserImportResult> results) {
+        return results.stream().collect(Collectors.toMap(UserImportResult::line, UserImportResult::status));
+    }
+
+    @Test
+    void invalidLinesAreReportedWithoutStoppingTheImport() throws Exception {
+        List<UserImportResult> results = importLines(
+                user("anag", "ana@x.com"),
+                "{not json",
+                user("ab", "short@x.com"),
+                user("x".repeat(500), "long@x.com"),
+                "",
+                user("pedro", "pedro@x.com"));
+
+        assertThat(results).extracting(UserImportResult::line).containsExactly(1L, 2L, 3L, 4L, 6L);
+        assertThat(statusByLine(results)).containsEntry(1L, "created").containsEntry(2L, "invalid")
+                .containsEntry(3L, "invalid").containsEntry(4L, "invalid").containsEntry(6L, "created");
+        assertThat(results.get(0).id()).isNotNull();
+        assertThat(results.get(2).errors()).containsKey("username");
+        assertThat(results.get(3).errors()).containsEntry("json", "La línea supera los 400 caracteres");
+        assertThat(batches).containsExactly(List.of("anag", "pedro"));
+    }
+
+    @Test
+    void registeredAndRepeatedUsernamesAndEmailsAreRejectedBeforeInserting() throws Exception {
+        List<UserImportResult> results = importLines(
+                user("taken", "taken@x.com"),
+                user("luis", "luis@x.com"),
+                user("LUIS", "other@x.com"),
+                user("marta", "LUIS@x.com"));
+
+        assertThat(statusByLine(results)).containsEntry(1L, "invalid").containsEntry(2L, "created")
+                .containsEntry(3L, "invalid").containsEntry(4L, "invalid");
+        assertThat(results.get(0).errors()).containsEntry("username", "El campo username ya está registrado");
+        assertThat(results.get(2).errors()).containsOnlyKeys("username");
+        assertThat(results.get(3).errors()).containsOnlyKeys("email");
+        assertThat(batches).containsExactly(List.of("luis"));
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRowSoOnlyTheOffendingRowFails() throws Exception {
+        List<UserImportResult> results = importLines(
+                user("anag", "ana@x.com"),
+                user("boom", "boom@x.com"),
+                user("pedro", "pedro@x.com"));
+
+        assertThat(statusByLine(results)).containsEntry(1L, "created").containsEntry(2L, "error").containsEntry(3L, "created");
+        assertThat(results.get(1).errors().get("error")).contains("Data too long");
+        assertThat(batches).containsExactly(List.of("anag", "boom", "pedro"), List.of("anag"), List.of("boom"), List.of("pedro"));
+    }
+
+    @Test
+    void createdUsersArePublishedAsChangeEvents() throws Exception {
+        importLines(user("anag", "ana@x.com"), user("pedro", "pedro@x.com"));
+
+        ArgumentCaptor<EntityChangeEvent> event = ArgumentCaptor.forClass(EntityChangeEvent.class);
+        verify(events).publishEvent(event.capture());
+        assertThat(event.getValue().entity()).isEqualTo(EntityChangeEvent.Entity.USER);
+        assertThat(event.getValue().keys()).containsExactly("anag", "pedro");
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void lineReaderTruncatesLongLinesAndKeepsReading() throws Exception {
+        UserImportServiceImpl.LineReader reader = new UserImportServiceImpl.LineReader(
+                new StringReader("abc\r\n" + "x".repeat(20) + "\nde"), 5);
+
+        assertThat(reader.next()).isEqualTo("abc");
+        assertThat(reader.truncated()).isFalse();
+        assertThat(reader.next()).isEqualTo("xxxxx");
+        assertThat(reader.truncated()).isTrue();
+        assertThat(reader.next()).isEqualTo("de");
+        assertThat(reader.truncated()).isFalse();
+        assertThat(reader.next()).isNull();
+    }
+
+}